@@ -0,0 +1,83 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi.benchmark;
+
+import net.epicpla.epicitemapi.EItemStack;
+import net.epicpla.epicitemapi.standin.StandIn;
+import org.bukkit.Material;
+import org.bukkit.enchantments.Enchantment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures copy-on-write clones, with and without a following write
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CloneBenchmark {
+
+    private EItemStack stack;
+
+    @Setup
+    public void setup() {
+        StandIn.install();
+        stack = new EItemStack(Material.BOW)
+                .beginMeta()
+                .setDisplayName("§eLongbow")
+                .setLore("§7Shoots far")
+                .addUnsafeEnchantment(Enchantment.DURABILITY, 3)
+                .commitMeta();
+    }
+
+    @Benchmark
+    public EItemStack cloneOnly() {
+        return stack.clone();
+    }
+
+    @Benchmark
+    public EItemStack cloneAndMutate() {
+        return stack.clone().setAmount(2);
+    }
+
+    @Benchmark
+    public EItemStack cloneAndEditMeta() {
+        return stack.clone().setDisplayName("§eShortbow");
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi.benchmark;
+
+import net.epicpla.epicitemapi.EItemStack;
+import net.epicpla.epicitemapi.standin.StandIn;
+import org.bukkit.Material;
+import org.bukkit.enchantments.Enchantment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures equality, similarity and hashing between two equal but distinct stacks
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EqualityBenchmark {
+
+    private EItemStack first;
+    private EItemStack second;
+    private EItemStack other;
+
+    @Setup
+    public void setup() {
+        StandIn.install();
+        first = create("§cBlade");
+        second = create("§cBlade");
+        other = create("§cOther Blade");
+    }
+
+    private static EItemStack create(String name) {
+        return new EItemStack(Material.IRON_SWORD)
+                .beginMeta()
+                .setDisplayName(name)
+                .setLore("§7Line one", "§7Line two")
+                .addUnsafeEnchantment(Enchantment.KNOCKBACK, 2)
+                .commitMeta();
+    }
+
+    @Benchmark
+    public boolean equalsEqual() {
+        return first.equals(second);
+    }
+
+    @Benchmark
+    public boolean equalsDifferent() {
+        return first.equals(other);
+    }
+
+    @Benchmark
+    public boolean isSimilar() {
+        return first.isSimilar(second);
+    }
+
+    @Benchmark
+    public int hashCodeCached() {
+        return first.hashCode();
+    }
+}
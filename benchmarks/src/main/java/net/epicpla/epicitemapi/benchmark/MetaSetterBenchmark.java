@@ -0,0 +1,90 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi.benchmark;
+
+import net.epicpla.epicitemapi.EItemStack;
+import net.epicpla.epicitemapi.standin.StandIn;
+import org.bukkit.Material;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemFlag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a chain of fluent setters, each of which reads and writes the meta, with the same chain in one edit session
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetaSetterBenchmark {
+
+    private List<String> lore;
+
+    @Setup
+    public void setup() {
+        StandIn.install();
+        lore = Arrays.asList("§7A sword forged", "§7in the benchmark", "", "§6Legendary");
+    }
+
+    @Benchmark
+    public EItemStack setterChain() {
+        return new EItemStack(Material.DIAMOND_SWORD)
+                .setDisplayName("§bExcalibur")
+                .setLore(lore)
+                .addUnsafeEnchantment(Enchantment.DAMAGE_ALL, 5)
+                .addUnsafeEnchantment(Enchantment.DURABILITY, 3)
+                .addItemFlags(ItemFlag.HIDE_ENCHANTS)
+                .setUnbreakable(true);
+    }
+
+    @Benchmark
+    public EItemStack editSession() {
+        return new EItemStack(Material.DIAMOND_SWORD)
+                .beginMeta()
+                .setDisplayName("§bExcalibur")
+                .setLore(lore)
+                .addUnsafeEnchantment(Enchantment.DAMAGE_ALL, 5)
+                .addUnsafeEnchantment(Enchantment.DURABILITY, 3)
+                .addItemFlags(ItemFlag.HIDE_ENCHANTS)
+                .setUnbreakable(true)
+                .commitMeta();
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi.benchmark;
+
+import net.epicpla.epicitemapi.EItemCodec;
+import net.epicpla.epicitemapi.EItemStack;
+import net.epicpla.epicitemapi.standin.StandIn;
+import org.bukkit.Material;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemFlag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the map form of {@link EItemStack#serialize()} with the binary {@link EItemCodec}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private EItemStack stack;
+    private Map<String, Object> serialized;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() {
+        StandIn.install();
+        stack = new EItemStack(Material.DIAMOND_PICKAXE)
+                .beginMeta()
+                .setDisplayName("§aMiner's Friend")
+                .setLore("§7Digs fast", "§7Lasts long")
+                .addUnsafeEnchantment(Enchantment.DIG_SPEED, 5)
+                .addUnsafeEnchantment(Enchantment.DURABILITY, 3)
+                .addItemFlags(ItemFlag.HIDE_ATTRIBUTES)
+                .commitMeta()
+                .setDurability((short) 42);
+        serialized = stack.serialize();
+        encoded = EItemCodec.encode(stack);
+    }
+
+    @Benchmark
+    public Map<String, Object> serialize() {
+        return stack.serialize();
+    }
+
+    @Benchmark
+    public EItemStack deserialize() {
+        return EItemStack.deserialize(serialized);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return EItemCodec.encode(stack);
+    }
+
+    @Benchmark
+    public EItemStack decode() {
+        return EItemCodec.decode(encoded);
+    }
+}
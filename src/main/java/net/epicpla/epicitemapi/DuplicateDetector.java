@@ -0,0 +1,425 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Flags the second sighting of an id stamped by {@link EItemStack#stampUniqueId()}, e.g. while scanning inventories or trades.
+ * <p>
+ * A Bloom filter answers most sightings of new ids without a lock. The filter is blocked: all the bits of an id
+ * fall into one 64-byte block, so a sighting touches a single cache line. Only when the filter has seen every bit of an id
+ * before is the exact set consulted, so the work per item stays constant however many ids have been seen.
+ * The exact set is split into lock stripes. Each stripe keeps its newest ids in memory and spills them as a sorted run
+ * to a file in the spill directory once it holds too many. Runs are merged when the newest is as large as the one before it,
+ * so a stripe has a logarithmic number of runs to search.
+ * Memory is therefore bounded by the filter size and the in-memory limit, whatever the number of ids.
+ * <p>
+ * All methods are thread-safe. {@link #close()} deletes the spilled runs.
+ */
+public final class DuplicateDetector implements Closeable {
+
+    private static final int STRIPES = 16;
+
+    private final AtomicLongArray bits;
+    private final int blocks;
+    private final int hashes;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final Path spillDirectory;
+    private final LongAdder observed = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+
+    /**
+     * Creates a detector
+     *
+     * @param spillDirectory    directory to spill ids into, created if missing
+     * @param expectedIds       number of ids the Bloom filter is sized for
+     * @param falsePositiveRate rate at which the filter sends a new id to the exact set when the expected number of ids has been seen
+     * @param maxInMemoryIds    number of ids kept in memory before they are spilled
+     * @throws IOException if the spill directory cannot be created
+     */
+    public DuplicateDetector(final Path spillDirectory, final long expectedIds, final double falsePositiveRate, final int maxInMemoryIds) throws IOException {
+        if (expectedIds < 1) {
+            throw new IllegalArgumentException("Expected ids must be positive: " + expectedIds);
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1: " + falsePositiveRate);
+        }
+        if (maxInMemoryIds < STRIPES) {
+            throw new IllegalArgumentException("At least " + STRIPES + " ids must be kept in memory: " + maxInMemoryIds);
+        }
+        long blocks = (long) Math.ceil(-expectedIds * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)) / 512);
+        if (blocks > Integer.MAX_VALUE / 8) {
+            throw new IllegalArgumentException("Bloom filter for " + expectedIds + " ids is too large");
+        }
+        this.blocks = (int) Math.max(blocks, 1);
+        this.bits = new AtomicLongArray(this.blocks * 8);
+        this.hashes = (int) Math.max(1, Math.min(16, Math.round((double) this.blocks * 512 / expectedIds * Math.log(2))));
+        this.spillDirectory = Files.createDirectories(spillDirectory);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(i, maxInMemoryIds / STRIPES);
+        }
+    }
+
+    /**
+     * Records a sighting of the given id
+     *
+     * @param id id to record, not 0
+     * @return true if the id has been seen before
+     * @throws UncheckedIOException if the ids cannot be spilled
+     */
+    public boolean observe(long id) {
+        if (id == 0) {
+            throw new IllegalArgumentException("0 is not a unique id");
+        }
+        observed.increment();
+        long hash = mix(id);
+        Stripe stripe = stripes[(int) (hash >>> 60)];
+        int spills = stripe.spills;
+        boolean duplicate;
+        if (addToFilter(hash)) {
+            // The filter had not seen the id, so only a racing sighting of the same id can be in the exact set
+            synchronized (stripe) {
+                duplicate = !stripe.memory.add(id) || stripe.spills != spills && stripe.inRuns(id);
+                stripe.spillIfFull();
+            }
+        } else {
+            synchronized (stripe) {
+                duplicate = stripe.inRuns(id) || !stripe.memory.add(id);
+                stripe.spillIfFull();
+            }
+        }
+        if (duplicate) {
+            duplicates.increment();
+        }
+        return duplicate;
+    }
+
+    /**
+     * Records a sighting of the given item's unique id
+     *
+     * @param stack item to record
+     * @return true if the item has a unique id which has been seen before
+     * @throws UncheckedIOException if the ids cannot be spilled
+     */
+    public boolean observe(EItemStack stack) {
+        return stack != null && stack.hasUniqueId() && observe(stack.getUniqueId());
+    }
+
+    /**
+     * Records a sighting of each stamped item
+     *
+     * @param contents items to record
+     * @return the indexes of the items whose id has been seen before, in ascending order
+     * @throws UncheckedIOException if the ids cannot be spilled
+     */
+    public int[] observe(ItemStack[] contents) {
+        int[] found = new int[contents.length];
+        int count = 0;
+        for (int i = 0; i < contents.length; i++) {
+            ItemStack stack = contents[i];
+            if (stack != null && stack.hasItemMeta() && observe(new EItemStack(stack))) {
+                found[count++] = i;
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * @return the number of sightings recorded
+     */
+    public long getObserved() {
+        return observed.sum();
+    }
+
+    /**
+     * @return the number of sightings which were duplicates
+     */
+    public long getDuplicates() {
+        return duplicates.sum();
+    }
+
+    /**
+     * Deletes the spilled runs. The detector cannot be used afterwards.
+     *
+     * @throws IOException if a run cannot be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.deleteRuns();
+            }
+        }
+    }
+
+    /**
+     * Sets the filter bits of the given hash
+     *
+     * @return true if any bit was not set yet
+     */
+    private boolean addToFilter(long hash) {
+        int block = (int) Math.floorMod(hash, (long) blocks) << 3;
+        long state = mix(hash);
+        boolean added = false;
+        for (int i = 0; i < hashes; i++) {
+            // Each round takes the top 9 bits of a multiplicative step as a bit of the 512-bit block
+            state = state * 0x9E3779B97F4A7C15L + 0x632BE59BD9B4E019L;
+            int bit = (int) (state >>> 55);
+            int word = block + (bit >>> 6);
+            long mask = 1L << bit;
+            long old = bits.get(word);
+            while ((old & mask) == 0) {
+                if (bits.compareAndSet(word, old, old | mask)) {
+                    added = true;
+                    break;
+                }
+                old = bits.get(word);
+            }
+        }
+        return added;
+    }
+
+    private static long mix(long hash) {
+        hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+        hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    /**
+     * A share of the exact set, guarded by its own monitor
+     */
+    private final class Stripe {
+
+        private final int index;
+        private final int limit;
+        private final LongSet memory = new LongSet();
+        private final List<Run> runs = new ArrayList<>();
+        private volatile int spills;
+        private int nextRun;
+
+        private Stripe(int index, int limit) {
+            this.index = index;
+            this.limit = limit;
+        }
+
+        private boolean inRuns(long id) {
+            for (Run run : runs) {
+                if (run.contains(id)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void spillIfFull() {
+            if (memory.size() < limit) {
+                return;
+            }
+            try {
+                long[] ids = memory.toSortedArray();
+                int[] next = new int[1];
+                runs.add(write(ids.length, () -> ids[next[0]++]));
+                memory.clear();
+                while (runs.size() > 1 && runs.get(runs.size() - 1).ids.limit() >= runs.get(runs.size() - 2).ids.limit()) {
+                    if (!mergeLastTwo()) {
+                        break;
+                    }
+                }
+                spills++;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not spill ids to " + spillDirectory, e);
+            }
+        }
+
+        /**
+         * Merges the two newest runs into one, streaming from the mapped runs into the new file.
+         * The runs hold distinct ids, so no id is dropped.
+         *
+         * @return false if the merged run would be too large to map
+         */
+        private boolean mergeLastTwo() throws IOException {
+            Run older = runs.get(runs.size() - 2);
+            Run newer = runs.get(runs.size() - 1);
+            long total = (long) older.ids.limit() + newer.ids.limit();
+            if (total > Integer.MAX_VALUE / 8) {
+                return false;
+            }
+            LongBuffer first = older.ids.duplicate();
+            LongBuffer second = newer.ids.duplicate();
+            Run merged = write((int) total, () -> !second.hasRemaining()
+                    || first.hasRemaining() && first.get(first.position()) < second.get(second.position()) ? first.get() : second.get());
+            runs.remove(runs.size() - 1);
+            runs.remove(runs.size() - 1);
+            older.delete();
+            newer.delete();
+            runs.add(merged);
+            return true;
+        }
+
+        private Run write(int length, LongSupplier ids) throws IOException {
+            Path path = spillDirectory.resolve("stripe-" + index + "-run-" + nextRun++ + ".bin");
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                ByteBuffer bytes = ByteBuffer.allocate(Math.max(1, Math.min(length, 8192)) * 8);
+                for (int written = 0; written < length; ) {
+                    bytes.clear();
+                    for (; written < length && bytes.hasRemaining(); written++) {
+                        bytes.putLong(ids.getAsLong());
+                    }
+                    bytes.flip();
+                    while (bytes.hasRemaining()) {
+                        channel.write(bytes);
+                    }
+                }
+                return new Run(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, (long) length * 8));
+            }
+        }
+
+        private void deleteRuns() throws IOException {
+            for (Run run : runs) {
+                run.delete();
+            }
+            runs.clear();
+        }
+    }
+
+    /**
+     * A sorted, memory-mapped file of ids
+     */
+    private static final class Run {
+
+        private final Path path;
+        private final MappedByteBuffer mapping;
+        private final LongBuffer ids;
+
+        private Run(Path path, MappedByteBuffer mapping) {
+            this.path = path;
+            this.mapping = mapping;
+            this.ids = mapping.asLongBuffer();
+        }
+
+        /**
+         * Unmaps and deletes the file; some platforms cannot delete a file which is still mapped
+         */
+        private void delete() throws IOException {
+            MappedFiles.unmap(mapping);
+            Files.deleteIfExists(path);
+        }
+
+        private boolean contains(long id) {
+            int low = 0;
+            int high = ids.limit() - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                long value = ids.get(middle);
+                if (value < id) {
+                    low = middle + 1;
+                } else if (value > id) {
+                    high = middle - 1;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * An open addressing set of longs other than 0
+     */
+    private static final class LongSet {
+
+        private long[] table = new long[64];
+        private int size;
+
+        private boolean add(long value) {
+            if (size * 2 >= table.length) {
+                grow();
+            }
+            int mask = table.length - 1;
+            int slot = (int) mix(value) & mask;
+            while (table[slot] != 0) {
+                if (table[slot] == value) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = value;
+            size++;
+            return true;
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private long[] toSortedArray() {
+            long[] values = new long[size];
+            int i = 0;
+            for (long value : table) {
+                if (value != 0) {
+                    values[i++] = value;
+                }
+            }
+            Arrays.sort(values);
+            return values;
+        }
+
+        private void clear() {
+            Arrays.fill(table, 0L);
+            size = 0;
+        }
+
+        private void grow() {
+            long[] old = table;
+            table = new long[old.length << 1];
+            size = 0;
+            for (long value : old) {
+                if (value != 0) {
+                    add(value);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,375 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Scans stored items in parallel for offline audits, e.g. to find duplicated items after an exploit.
+ * <p>
+ * The items come from {@link Partition}s, such as the files written by {@link ItemSink} or the owners of an {@link EItemStore}.
+ * The partitions are split across a {@link ForkJoinPool} and each one is read as a stream, one item at a time,
+ * so memory use does not depend on the number of items. Items stay in their serialized form until the predicate needs more than
+ * their type, amount or durability. An item which fails to decode when the predicate needs it is counted in {@link Report#getErrors()}
+ * and skipped, and the rest of its partition is still read. Matches are handed to a consumer as they are found, and only owners with a match
+ * are kept in the {@link Report}.
+ * <p>
+ * The audit only decodes items into detached stacks; it never reads or changes inventories, players or worlds,
+ * so it may run off the main thread while the server is up.
+ */
+public final class EItemAudit {
+
+    private final Predicate<? super EItemStack> predicate;
+
+    /**
+     * Creates an audit for the items matching the given matcher
+     *
+     * @param matcher items to look for
+     */
+    public EItemAudit(final ItemMatcher matcher) {
+        this((Predicate<EItemStack>) matcher::test);
+    }
+
+    /**
+     * Creates an audit for the items matching the given predicate, which must be thread-safe
+     *
+     * @param predicate items to look for
+     */
+    public EItemAudit(final Predicate<? super EItemStack> predicate) {
+        this.predicate = predicate;
+    }
+
+    /**
+     * Runs the audit on the common pool
+     *
+     * @param partitions partitions to scan
+     * @param results    called with each match, from one thread at a time
+     * @return the report, once every partition has been scanned
+     */
+    public Report run(List<? extends Partition> partitions, Consumer<? super Match> results) {
+        return run(partitions, ForkJoinPool.commonPool(), results);
+    }
+
+    /**
+     * Runs the audit on the given pool
+     *
+     * @param partitions partitions to scan
+     * @param pool       pool to scan on
+     * @param results    called with each match, from one thread at a time
+     * @return the report, once every partition has been scanned
+     */
+    public Report run(List<? extends Partition> partitions, ForkJoinPool pool, Consumer<? super Match> results) {
+        Report report = new Report();
+        Object lock = new Object();
+        Consumer<Match> serial = match -> {
+            synchronized (lock) {
+                results.accept(match);
+            }
+        };
+        pool.invoke(new Scan(new ArrayList<>(partitions), 0, partitions.size(), report, serial));
+        return report;
+    }
+
+    /**
+     * Creates one partition per regular file in the given directory whose name matches the glob.
+     * Each file is read by {@link ItemSource}, and its items are owned by the file name without extension,
+     * e.g. the UUID of a player data file.
+     *
+     * @param directory directory to list
+     * @param glob      file name pattern, e.g. <code>*.yml</code>
+     * @return the partitions
+     * @throws IOException if the directory cannot be listed
+     */
+    public static List<Partition> files(Path directory, String glob) throws IOException {
+        List<Partition> partitions = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+            for (Path path : stream) {
+                if (Files.isRegularFile(path)) {
+                    String name = path.getFileName().toString();
+                    int dot = name.lastIndexOf('.');
+                    partitions.add(file(dot > 0 ? name.substring(0, dot) : name, path));
+                }
+            }
+        }
+        return partitions;
+    }
+
+    /**
+     * Creates a partition of the items in a file written by {@link ItemSink}
+     *
+     * @param owner owner of the items
+     * @param path  file to read
+     * @return the partition
+     */
+    public static Partition file(String owner, Path path) {
+        return visitor -> {
+            try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+                 ItemSource source = new ItemSource(reader)) {
+                while (source.hasNext()) {
+                    Map<String, Object> fields = source.nextFields();
+                    if (fields != null) {
+                        visitor.accept(owner, new LazyEItemStack(fields));
+                    }
+                }
+            } catch (IOException e) {
+                throw new IOException("Could not read " + path, e);
+            }
+        };
+    }
+
+    /**
+     * Creates one partition per owner in the given store, owned by the owner's UUID
+     *
+     * @param store store to read
+     * @return the partitions
+     */
+    public static List<Partition> store(EItemStore store) {
+        List<Partition> partitions = new ArrayList<>();
+        for (UUID owner : store.getOwners()) {
+            String name = owner.toString();
+            partitions.add(visitor -> {
+                for (EItemStore.Entry entry : store.entries(owner)) {
+                    visitor.accept(name, entry.getItem());
+                }
+            });
+        }
+        return partitions;
+    }
+
+    /**
+     * A unit of work of an audit: a source of items which is read on a single thread
+     */
+    @FunctionalInterface
+    public interface Partition {
+
+        /**
+         * Reads every item of this partition
+         *
+         * @param visitor called with the owner and each item
+         * @throws IOException if the items cannot be read
+         */
+        void read(BiConsumer<String, EItemStack> visitor) throws IOException;
+    }
+
+    /**
+     * An item which matched
+     */
+    public static final class Match {
+
+        private final String owner;
+        private final EItemStack item;
+
+        private Match(String owner, EItemStack item) {
+            this.owner = owner;
+            this.item = item;
+        }
+
+        /**
+         * @return the owner of the item
+         */
+        public String getOwner() {
+            return owner;
+        }
+
+        /**
+         * @return the item
+         */
+        public EItemStack getItem() {
+            return item;
+        }
+    }
+
+    /**
+     * The matches of one owner
+     */
+    public static final class OwnerTotals {
+
+        private long stacks;
+        private long amount;
+
+        private OwnerTotals() {
+        }
+
+        /**
+         * @return the number of matching stacks
+         */
+        public long getStacks() {
+            return stacks;
+        }
+
+        /**
+         * @return the total amount of the matching stacks
+         */
+        public long getAmount() {
+            return amount;
+        }
+
+        private OwnerTotals add(OwnerTotals totals) {
+            stacks += totals.stacks;
+            amount += totals.amount;
+            return this;
+        }
+    }
+
+    /**
+     * The outcome of an audit
+     */
+    public static final class Report {
+
+        private final LongAdder scanned = new LongAdder();
+        private final LongAdder matched = new LongAdder();
+        private final LongAdder matchedAmount = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final Map<String, OwnerTotals> owners = new ConcurrentHashMap<>();
+        private final List<String> failures = Collections.synchronizedList(new ArrayList<>());
+
+        private Report() {
+        }
+
+        /**
+         * @return the number of items scanned
+         */
+        public long getScanned() {
+            return scanned.sum();
+        }
+
+        /**
+         * @return the number of matching stacks
+         */
+        public long getMatched() {
+            return matched.sum();
+        }
+
+        /**
+         * @return the total amount of the matching stacks
+         */
+        public long getMatchedAmount() {
+            return matchedAmount.sum();
+        }
+
+        /**
+         * @return the number of items which could not be decoded or tested, and were skipped
+         */
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        /**
+         * @return the totals of each owner with at least one match
+         */
+        public Map<String, OwnerTotals> getOwners() {
+            return Collections.unmodifiableMap(owners);
+        }
+
+        /**
+         * @return a description of each partition which could not be read to the end
+         */
+        public List<String> getFailures() {
+            return Collections.unmodifiableList(failures);
+        }
+    }
+
+    private final class Scan extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<? extends Partition> partitions;
+        private final int from;
+        private final int to;
+        private final Report report;
+        private final Consumer<Match> results;
+
+        private Scan(List<? extends Partition> partitions, int from, int to, Report report, Consumer<Match> results) {
+            this.partitions = partitions;
+            this.from = from;
+            this.to = to;
+            this.report = report;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Scan(partitions, from, middle, report, results), new Scan(partitions, middle, to, report, results));
+            } else if (to > from) {
+                scan(partitions.get(from));
+            }
+        }
+
+        private void scan(Partition partition) {
+            Map<String, OwnerTotals> owners = new HashMap<>();
+            long[] scanned = new long[1];
+            try {
+                partition.read((owner, stack) -> {
+                    scanned[0]++;
+                    boolean match;
+                    try {
+                        match = predicate.test(stack);
+                    } catch (RuntimeException e) {
+                        report.errors.increment();
+                        return;
+                    }
+                    if (!match) {
+                        return;
+                    }
+                    int amount = stack.getAmount();
+                    OwnerTotals totals = owners.computeIfAbsent(owner, key -> new OwnerTotals());
+                    totals.stacks++;
+                    totals.amount += amount;
+                    report.matched.increment();
+                    report.matchedAmount.add(amount);
+                    results.accept(new Match(owner, stack));
+                });
+            } catch (IOException | RuntimeException e) {
+                report.failures.add(e.toString());
+            } finally {
+                report.scanned.add(scanned[0]);
+                for (Map.Entry<String, OwnerTotals> entry : owners.entrySet()) {
+                    report.owners.merge(entry.getKey(), entry.getValue(), OwnerTotals::add);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,493 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package net.epicpla.epicitemapi;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Encodes a whole inventory or vault into one compressed blob.
+ * <p>
+ * Within a batch, each distinct display name, lore line, YAML meta and enchantment set is written once into a table,
+ * and items refer to it by index. The batch is then compressed by {@link Deflater}, optionally with a preset dictionary
+ * made by {@link #trainDictionary(Iterable, int)} from a sample of your own items, which lets even the first occurrence
+ * of a common line be compressed. The decoder must use the same dictionary; the zlib stream records its checksum.
+ * Items hold the same data as in {@link EItemCodec}, so they round-trip like {@link EItemStack#serialize()}.
+ * <p>
+ * Layout, every number being an unsigned variable-length int:
+ * <pre>
+ * version byte, uncompressed length, zlib stream of:
+ *   string count, strings..., enchantment set count, (size, (id, level)...)...,
+ *   item count, (material id + 1 or 0 for an empty slot, field bits, [damage], [amount], [YAML string index],
+ *                [name string index], [line count, line string indexes...], [enchantment set index], [flag bits])...
+ * </pre>
+ */
+public final class EItemBatchCodec {
+
+    /**
+     * The format version written by this codec
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The largest useful dictionary, as Deflater only looks back this far
+     */
+    public static final int MAX_DICTIONARY_SIZE = 32768;
+
+    private static final int MAX_BATCH_SIZE = 1 << 28;
+
+    private final byte[] dictionary;
+
+    /**
+     * Creates a codec which compresses without a dictionary
+     */
+    public EItemBatchCodec() {
+        this(null);
+    }
+
+    /**
+     * Creates a codec which compresses with the given dictionary
+     *
+     * @param dictionary preset dictionary, e.g. from {@link #trainDictionary(Iterable, int)}, or null for none
+     */
+    public EItemBatchCodec(final byte[] dictionary) {
+        this.dictionary = dictionary == null || dictionary.length == 0 ? null : dictionary.clone();
+    }
+
+    /**
+     * Encodes the given stacks
+     *
+     * @param stacks stacks to encode; null elements and air are empty slots
+     * @return encoded bytes
+     * @throws IllegalArgumentException if a lore line is null or the batch would be too large to decode
+     */
+    public byte[] encode(ItemStack[] stacks) {
+        EItemStack[] items = new EItemStack[stacks.length];
+        for (int i = 0; i < stacks.length; i++) {
+            if (stacks[i] != null) {
+                items[i] = new EItemStack(stacks[i]);
+            }
+        }
+        return encode(items);
+    }
+
+    /**
+     * Encodes the given items
+     *
+     * @param stacks items to encode; null elements and air are empty slots
+     * @return encoded bytes
+     * @throws IllegalArgumentException if a lore line is null or the batch would be too large to decode
+     */
+    @SuppressWarnings("deprecation")
+    public byte[] encode(EItemStack... stacks) {
+        Table<String> strings = new Table<>();
+        Table<Map<Enchantment, Integer>> enchantmentSets = new Table<>();
+        int[][] items = new int[stacks.length][];
+        for (int i = 0; i < stacks.length; i++) {
+            items[i] = describe(stacks[i], strings, enchantmentSets);
+        }
+
+        // The exact size is computed first, so the batch is written once into a buffer which fits it
+        byte[][] encodedStrings = new byte[strings.values.size()][];
+        long size = EItemCodec.varIntSize(encodedStrings.length);
+        for (int i = 0; i < encodedStrings.length; i++) {
+            encodedStrings[i] = strings.values.get(i).getBytes(StandardCharsets.UTF_8);
+            size += EItemCodec.varIntSize(encodedStrings[i].length) + encodedStrings[i].length;
+        }
+        size += EItemCodec.varIntSize(enchantmentSets.values.size());
+        for (Map<Enchantment, Integer> set : enchantmentSets.values) {
+            size += EItemCodec.varIntSize(set.size());
+            for (Map.Entry<Enchantment, Integer> entry : set.entrySet()) {
+                size += EItemCodec.varIntSize(entry.getKey().getId()) + EItemCodec.varIntSize(entry.getValue());
+            }
+        }
+        size += EItemCodec.varIntSize(items.length);
+        for (int[] item : items) {
+            for (int value : item) {
+                size += EItemCodec.varIntSize(value);
+            }
+        }
+        if (size > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch of " + size + " bytes is too large");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        EItemCodec.writeVarInt(buffer, encodedStrings.length);
+        for (byte[] value : encodedStrings) {
+            EItemCodec.writeVarInt(buffer, value.length);
+            buffer.put(value);
+        }
+        EItemCodec.writeVarInt(buffer, enchantmentSets.values.size());
+        for (Map<Enchantment, Integer> set : enchantmentSets.values) {
+            EItemCodec.writeVarInt(buffer, set.size());
+            for (Map.Entry<Enchantment, Integer> entry : set.entrySet()) {
+                EItemCodec.writeVarInt(buffer, entry.getKey().getId());
+                EItemCodec.writeVarInt(buffer, entry.getValue());
+            }
+        }
+        EItemCodec.writeVarInt(buffer, items.length);
+        for (int[] item : items) {
+            for (int value : item) {
+                EItemCodec.writeVarInt(buffer, value);
+            }
+        }
+        return compress(buffer.array(), buffer.position());
+    }
+
+    /**
+     * Decodes items encoded by {@link #encode(EItemStack...)}
+     *
+     * @param bytes encoded bytes
+     * @return the items; empty slots are null elements
+     * @throws IllegalArgumentException if the data is not valid or was compressed with another dictionary
+     */
+    @SuppressWarnings("deprecation")
+    public EItemStack[] decode(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(decompress(bytes));
+        try {
+            String[] strings = new String[EItemCodec.count(buffer)];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = EItemCodec.readString(buffer);
+            }
+            List<Map<Enchantment, Integer>> enchantmentSets = new ArrayList<>();
+            for (int i = EItemCodec.count(buffer); i > 0; i--) {
+                Map<Enchantment, Integer> set = new LinkedHashMap<>();
+                for (int j = EItemCodec.count(buffer); j > 0; j--) {
+                    int id = EItemCodec.readVarInt(buffer);
+                    Enchantment enchantment = EItemResolver.getEnchantment(id);
+                    if (enchantment == null) {
+                        throw new IllegalArgumentException("Unknown enchantment id " + id);
+                    }
+                    set.put(enchantment, EItemCodec.readVarInt(buffer));
+                }
+                enchantmentSets.add(set);
+            }
+            EItemStack[] stacks = new EItemStack[EItemCodec.count(buffer)];
+            for (int i = 0; i < stacks.length; i++) {
+                stacks[i] = readItem(buffer, strings, enchantmentSets);
+            }
+            return stacks;
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IllegalArgumentException("Malformed batch", e);
+        }
+    }
+
+    /**
+     * Builds a preset dictionary from a sample of items.<br>
+     * The display names, lore lines and YAML meta which occur more than once in the sample are ranked by
+     * how many bytes they would save, and the best are packed into the dictionary with the best last,
+     * where Deflater reaches them most cheaply.
+     *
+     * @param corpus  sample of items
+     * @param maxSize size limit of the dictionary, at most {@value #MAX_DICTIONARY_SIZE}
+     * @return the dictionary, which is empty if nothing occurs more than once
+     */
+    public static byte[] trainDictionary(Iterable<? extends EItemStack> corpus, int maxSize) {
+        if (maxSize < 1 || maxSize > MAX_DICTIONARY_SIZE) {
+            throw new IllegalArgumentException("Dictionary size must be between 1 and " + MAX_DICTIONARY_SIZE + ": " + maxSize);
+        }
+        Map<String, Integer> counts = new HashMap<>();
+        for (EItemStack stack : corpus) {
+            if (stack == null || stack.getType() == Material.AIR) {
+                continue;
+            }
+            ItemMeta meta = stack.peekMeta();
+            if (meta == null || Bukkit.getItemFactory().equals(meta, null)) {
+                continue;
+            }
+            if (!EItemCodec.isCompact(meta, stack.getType())) {
+                counts.merge(EItemCodec.toYaml(meta), 1, Integer::sum);
+                continue;
+            }
+            if (meta.hasDisplayName()) {
+                counts.merge(meta.getDisplayName(), 1, Integer::sum);
+            }
+            if (meta.hasLore()) {
+                for (String line : meta.getLore()) {
+                    if (line != null) {
+                        counts.merge(line, 1, Integer::sum);
+                    }
+                }
+            }
+        }
+
+        List<Map.Entry<String, Integer>> ranked = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            if (entry.getValue() > 1) {
+                ranked.add(entry);
+            }
+        }
+        ranked.sort((a, b) -> Long.compare(score(b), score(a)));
+
+        List<byte[]> chosen = new ArrayList<>();
+        int size = 0;
+        for (Map.Entry<String, Integer> entry : ranked) {
+            byte[] encoded = encodeString(entry.getKey());
+            if (size + encoded.length <= maxSize) {
+                chosen.add(encoded);
+                size += encoded.length;
+            }
+        }
+        byte[] dictionary = new byte[size];
+        int position = size;
+        for (byte[] encoded : chosen) {
+            position -= encoded.length;
+            System.arraycopy(encoded, 0, dictionary, position, encoded.length);
+        }
+        return dictionary;
+    }
+
+    /**
+     * Describes the given item as the numbers written for it, adding its strings and enchantments to the tables
+     */
+    @SuppressWarnings("deprecation")
+    private static int[] describe(EItemStack stack, Table<String> strings, Table<Map<Enchantment, Integer>> enchantmentSets) {
+        if (stack == null || stack.getType() == Material.AIR) {
+            return new int[]{0};
+        }
+        Material type = stack.getType();
+        short damage = stack.getDurability();
+        int amount = stack.getAmount();
+        ItemMeta meta = stack.peekMeta();
+
+        int fields = 0;
+        if (damage != 0) {
+            fields |= EItemCodec.DAMAGE;
+        }
+        if (amount != 1) {
+            fields |= EItemCodec.AMOUNT;
+        }
+        boolean extra = false;
+        if (meta != null && !Bukkit.getItemFactory().equals(meta, null)) {
+            fields |= EItemCodec.metaFields(meta);
+            if (!EItemCodec.isCompact(meta, type)) {
+                extra = true;
+                fields = fields & (EItemCodec.DAMAGE | EItemCodec.AMOUNT) | EItemCodec.EXTRA;
+            }
+        }
+
+        List<String> lore = (fields & EItemCodec.LORE) != 0 ? EItemCodec.lore(meta) : Collections.<String>emptyList();
+        int[] item = new int[8 + lore.size()];
+        int length = 0;
+        item[length++] = type.getId() + 1;
+        item[length++] = fields;
+        if ((fields & EItemCodec.DAMAGE) != 0) {
+            item[length++] = damage & 0xFFFF;
+        }
+        if ((fields & EItemCodec.AMOUNT) != 0) {
+            item[length++] = amount;
+        }
+        if (extra) {
+            item[length++] = strings.indexOf(EItemCodec.toYaml(meta));
+            return Arrays.copyOf(item, length);
+        }
+        if ((fields & EItemCodec.NAME) != 0) {
+            item[length++] = strings.indexOf(meta.getDisplayName());
+        }
+        if ((fields & EItemCodec.LORE) != 0) {
+            item[length++] = lore.size();
+            for (String line : lore) {
+                item[length++] = strings.indexOf(line);
+            }
+        }
+        if ((fields & EItemCodec.ENCHANTS) != 0) {
+            item[length++] = enchantmentSets.indexOf(meta.getEnchants());
+        }
+        if ((fields & EItemCodec.FLAGS) != 0) {
+            item[length++] = EItemCodec.flagBits(meta);
+        }
+        return Arrays.copyOf(item, length);
+    }
+
+    private static EItemStack readItem(ByteBuffer buffer, String[] strings, List<Map<Enchantment, Integer>> enchantmentSets) {
+        int typeId = EItemCodec.readVarInt(buffer);
+        if (typeId == 0) {
+            return null;
+        }
+        Material type = EItemResolver.getMaterial(typeId - 1);
+        if (type == null) {
+            throw new IllegalArgumentException("Unknown material id " + (typeId - 1));
+        }
+        int fields = EItemCodec.readVarInt(buffer);
+        short damage = (fields & EItemCodec.DAMAGE) != 0 ? (short) EItemCodec.readVarInt(buffer) : 0;
+        int amount = (fields & EItemCodec.AMOUNT) != 0 ? EItemCodec.readVarInt(buffer) : 1;
+        ItemStack result = new ItemStack(type, amount, damage);
+
+        if ((fields & EItemCodec.EXTRA) != 0) {
+            result.setItemMeta(EItemCodec.fromYaml(strings[EItemCodec.readVarInt(buffer)]));
+            return new EItemStack(result, null);
+        }
+        if ((fields & (EItemCodec.NAME | EItemCodec.LORE | EItemCodec.ENCHANTS | EItemCodec.FLAGS | EItemCodec.UNBREAKABLE)) == 0) {
+            return new EItemStack(result, null);
+        }
+
+        ItemMeta meta = Bukkit.getItemFactory().getItemMeta(type);
+        if ((fields & EItemCodec.NAME) != 0) {
+            meta.setDisplayName(strings[EItemCodec.readVarInt(buffer)]);
+        }
+        if ((fields & EItemCodec.LORE) != 0) {
+            String[] lore = new String[EItemCodec.count(buffer)];
+            for (int i = 0; i < lore.length; i++) {
+                lore[i] = strings[EItemCodec.readVarInt(buffer)];
+            }
+            meta.setLore(Arrays.asList(lore));
+        }
+        if ((fields & EItemCodec.ENCHANTS) != 0) {
+            for (Map.Entry<Enchantment, Integer> entry : enchantmentSets.get(EItemCodec.readVarInt(buffer)).entrySet()) {
+                meta.addEnchant(entry.getKey(), entry.getValue(), true);
+            }
+        }
+        if ((fields & EItemCodec.FLAGS) != 0) {
+            meta.addItemFlags(EItemCodec.toFlags(EItemCodec.readVarInt(buffer)));
+        }
+        if ((fields & EItemCodec.UNBREAKABLE) != 0) {
+            meta.spigot().setUnbreakable(true);
+        }
+        result.setItemMeta(meta);
+        return new EItemStack(result, meta);
+    }
+
+    private byte[] compress(byte[] data, int length) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length / 4 + 16);
+            out.write(VERSION);
+            byte[] header = new byte[5];
+            ByteBuffer lengthBuffer = ByteBuffer.wrap(header);
+            EItemCodec.writeVarInt(lengthBuffer, length);
+            out.write(header, 0, lengthBuffer.position());
+            byte[] chunk = new byte[Math.max(64, Math.min(length, 8192))];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private byte[] decompress(byte[] bytes) {
+        ByteBuffer header = ByteBuffer.wrap(bytes);
+        try {
+            int version = header.get() & 0xFF;
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported format version " + version);
+            }
+            int length = EItemCodec.readVarInt(header);
+            if (length < 0) {
+                throw new IllegalArgumentException("Negative batch length " + length);
+            }
+            if (length > MAX_BATCH_SIZE) {
+                throw new IllegalArgumentException("Batch of " + length + " bytes is too large");
+            }
+            byte[] data = new byte[length];
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(bytes, header.position(), bytes.length - header.position());
+                int read = 0;
+                while (read < length) {
+                    int n = inflater.inflate(data, read, length - read);
+                    if (n == 0) {
+                        if (inflater.needsDictionary()) {
+                            if (dictionary == null) {
+                                throw new IllegalArgumentException("The batch was compressed with a dictionary");
+                            }
+                            try {
+                                inflater.setDictionary(dictionary);
+                            } catch (IllegalArgumentException e) {
+                                throw new IllegalArgumentException("The batch was compressed with another dictionary", e);
+                            }
+                        } else if (inflater.finished() || inflater.needsInput()) {
+                            throw new IllegalArgumentException("Batch is shorter than its stated length");
+                        }
+                    }
+                    read += n;
+                }
+                // Reads the trailer, which verifies the checksum
+                if (!inflater.finished() && (inflater.inflate(new byte[1]) != 0 || !inflater.finished())) {
+                    throw new IllegalArgumentException("Batch does not end at its stated length");
+                }
+            } finally {
+                inflater.end();
+            }
+            return data;
+        } catch (DataFormatException | BufferUnderflowException e) {
+            throw new IllegalArgumentException("Malformed batch", e);
+        }
+    }
+
+    private static long score(Map.Entry<String, Integer> entry) {
+        return (long) entry.getValue() * entry.getKey().length();
+    }
+
+    private static byte[] encodeString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 5);
+        EItemCodec.writeString(buffer, value);
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    /**
+     * A table of distinct values, numbered in order of first use
+     */
+    private static final class Table<T> {
+
+        private final Map<T, Integer> indexes = new HashMap<>();
+        private final List<T> values = new ArrayList<>();
+
+        private int indexOf(T value) {
+            Integer index = indexes.get(value);
+            if (index == null) {
+                index = values.size();
+                indexes.put(value, index);
+                values.add(value);
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,532 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.ItemFlag;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary form of an {@link EItemStack}, holding the same data as {@link EItemStack#serialize()}.<br>
+ * Materials and enchantments are written as ids, lore as length-prefixed UTF-8 and item flags as a bit set.
+ * Meta which has more than a display name, lore, enchantments, item flags and the unbreakable tag
+ * (e.g. leather armor color or book pages) is kept as a whole in its YAML form.
+ * <p>
+ * Layout, every number being an unsigned variable-length int:
+ * <pre>
+ * version, material id, field bits,
+ * [damage], [amount], [display name], [lore count, lines...], [enchantment count, (id, level)...], [flag bits], [YAML meta]
+ * </pre>
+ */
+public final class EItemCodec {
+
+    /**
+     * The format version written by this codec
+     */
+    public static final int VERSION = 1;
+
+    static final int DAMAGE = 1;
+    static final int AMOUNT = 1 << 1;
+    static final int NAME = 1 << 2;
+    static final int LORE = 1 << 3;
+    static final int ENCHANTS = 1 << 4;
+    static final int FLAGS = 1 << 5;
+    static final int UNBREAKABLE = 1 << 6;
+    static final int EXTRA = 1 << 7;
+
+    private static final ItemFlag[] ITEM_FLAGS = ItemFlag.values();
+    private static final int MAX_BUFFER = Integer.MAX_VALUE - 8;
+
+    private EItemCodec() {
+    }
+
+    /**
+     * Writes the given stack at the current position of the buffer
+     *
+     * @param stack  stack to write
+     * @param buffer buffer to write into
+     * @throws BufferOverflowException if the buffer has not enough space left
+     * @throws IllegalArgumentException if the stack is a {@link LazyEItemStack} whose bytes are not valid
+     */
+    public static void write(EItemStack stack, ByteBuffer buffer) {
+        write(stack, buffer, verbatim(stack) != null || isCompact(stack));
+    }
+
+    /**
+     * Writes the given stack, whose compactness the caller has already checked by {@link #isCompact(EItemStack)}
+     */
+    static void write(EItemStack stack, ByteBuffer buffer, boolean compact) {
+        long start = EItemMetrics.start();
+        int position = buffer.position();
+        byte[] encoded = verbatim(stack);
+        if (encoded != null) {
+            buffer.put(encoded);
+        } else {
+            writeStack(stack, buffer, compact);
+        }
+        EItemMetrics.record(EItemMetrics.Operation.ENCODE, start, buffer.position() - position);
+    }
+
+    /**
+     * Gets the bytes of a lazy stack which can be written as they are
+     */
+    private static byte[] verbatim(EItemStack stack) {
+        if (stack instanceof LazyEItemStack) {
+            byte[] encoded = ((LazyEItemStack) stack).getEncoded();
+            // The header check rejects unknown materials, and the length check trailing bytes which would corrupt the output
+            if (encoded != null && stack.getType() != null && length(encoded) == encoded.length) {
+                return encoded;
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static void writeStack(EItemStack stack, ByteBuffer buffer, boolean compact) {
+        Material type = stack.getType();
+        short damage = stack.getDurability();
+        int amount = stack.getAmount();
+        ItemMeta meta = type == Material.AIR ? null : stack.peekMeta();
+
+        int fields = 0;
+        if (damage != 0) {
+            fields |= DAMAGE;
+        }
+        if (amount != 1) {
+            fields |= AMOUNT;
+        }
+        String extra = null;
+        if (meta != null && !Bukkit.getItemFactory().equals(meta, null)) {
+            fields |= metaFields(meta);
+            if (!compact) {
+                extra = toYaml(meta);
+                fields = fields & (DAMAGE | AMOUNT) | EXTRA;
+            }
+        }
+
+        buffer.put((byte) VERSION);
+        writeVarInt(buffer, type.getId());
+        writeVarInt(buffer, fields);
+        if ((fields & DAMAGE) != 0) {
+            writeVarInt(buffer, damage & 0xFFFF);
+        }
+        if ((fields & AMOUNT) != 0) {
+            writeVarInt(buffer, amount);
+        }
+        if ((fields & EXTRA) != 0) {
+            writeString(buffer, extra);
+            return;
+        }
+        if ((fields & NAME) != 0) {
+            writeString(buffer, meta.getDisplayName());
+        }
+        if ((fields & LORE) != 0) {
+            List<String> lore = lore(meta);
+            writeVarInt(buffer, lore.size());
+            for (String line : lore) {
+                writeString(buffer, line);
+            }
+        }
+        if ((fields & ENCHANTS) != 0) {
+            Map<Enchantment, Integer> enchantments = meta.getEnchants();
+            writeVarInt(buffer, enchantments.size());
+            for (Map.Entry<Enchantment, Integer> entry : enchantments.entrySet()) {
+                writeVarInt(buffer, entry.getKey().getId());
+                writeVarInt(buffer, entry.getValue());
+            }
+        }
+        if ((fields & FLAGS) != 0) {
+            writeVarInt(buffer, flagBits(meta));
+        }
+    }
+
+    /**
+     * Reads a stack from the current position of the buffer
+     *
+     * @param buffer buffer to read from
+     * @return the stack read
+     * @throws IllegalArgumentException if the data is not valid or ends too early
+     */
+    public static EItemStack read(ByteBuffer buffer) {
+        long start = EItemMetrics.start();
+        int position = buffer.position();
+        EItemStack stack;
+        try {
+            stack = readStack(buffer);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Malformed stack", e);
+        }
+        EItemMetrics.record(EItemMetrics.Operation.DECODE, start, buffer.position() - position);
+        return stack;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static EItemStack readStack(ByteBuffer buffer) {
+        int version = buffer.get() & 0xFF;
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported format version " + version);
+        }
+        int id = readVarInt(buffer);
+        Material type = EItemResolver.getMaterial(id);
+        if (type == null) {
+            throw new IllegalArgumentException("Unknown material id " + id);
+        }
+        int fields = readVarInt(buffer);
+        short damage = (fields & DAMAGE) != 0 ? (short) readVarInt(buffer) : 0;
+        int amount = (fields & AMOUNT) != 0 ? readVarInt(buffer) : 1;
+        ItemStack result = new ItemStack(type, amount, damage);
+
+        if ((fields & EXTRA) != 0) {
+            ItemMeta meta = fromYaml(readString(buffer));
+            result.setItemMeta(meta);
+            return new EItemStack(result, null);
+        }
+        if ((fields & (NAME | LORE | ENCHANTS | FLAGS | UNBREAKABLE)) == 0) {
+            return new EItemStack(result, null);
+        }
+
+        ItemMeta meta = Bukkit.getItemFactory().getItemMeta(type);
+        if ((fields & NAME) != 0) {
+            meta.setDisplayName(readString(buffer));
+        }
+        if ((fields & LORE) != 0) {
+            String[] lore = new String[count(buffer)];
+            for (int i = 0; i < lore.length; i++) {
+                lore[i] = readString(buffer);
+            }
+            meta.setLore(Arrays.asList(lore));
+        }
+        if ((fields & ENCHANTS) != 0) {
+            int count = count(buffer);
+            for (int i = 0; i < count; i++) {
+                int enchantmentId = readVarInt(buffer);
+                int level = readVarInt(buffer);
+                Enchantment enchantment = EItemResolver.getEnchantment(enchantmentId);
+                if (enchantment == null) {
+                    throw new IllegalArgumentException("Unknown enchantment id " + enchantmentId);
+                }
+                meta.addEnchant(enchantment, level, true);
+            }
+        }
+        if ((fields & FLAGS) != 0) {
+            meta.addItemFlags(toFlags(readVarInt(buffer)));
+        }
+        if ((fields & UNBREAKABLE) != 0) {
+            meta.spigot().setUnbreakable(true);
+        }
+        result.setItemMeta(meta);
+        return new EItemStack(result, meta);
+    }
+
+    /**
+     * Encodes the given stack into a new array
+     *
+     * @param stack stack to encode
+     * @return encoded bytes
+     */
+    public static byte[] encode(EItemStack stack) {
+        boolean compact = verbatim(stack) != null || isCompact(stack);
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        while (true) {
+            try {
+                write(stack, buffer, compact);
+            } catch (BufferOverflowException e) {
+                buffer = grow(buffer, 0);
+                continue;
+            }
+            return Arrays.copyOf(buffer.array(), buffer.position());
+        }
+    }
+
+    /**
+     * Decodes a stack encoded by {@link #encode(EItemStack)}
+     *
+     * @param bytes encoded bytes
+     * @return decoded stack
+     * @throws IllegalArgumentException if the data is not valid
+     */
+    public static EItemStack decode(byte[] bytes) {
+        return read(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Measures the stack at the start of the given bytes without decoding it
+     *
+     * @return the number of bytes the stack takes
+     * @throws IllegalArgumentException if the data is not valid or ends too early
+     */
+    static int length(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try {
+            int version = buffer.get() & 0xFF;
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported format version " + version);
+            }
+            readVarInt(buffer);
+            int fields = readVarInt(buffer);
+            if ((fields & DAMAGE) != 0) {
+                readVarInt(buffer);
+            }
+            if ((fields & AMOUNT) != 0) {
+                readVarInt(buffer);
+            }
+            if ((fields & EXTRA) != 0) {
+                skipString(buffer);
+                return buffer.position();
+            }
+            if ((fields & NAME) != 0) {
+                skipString(buffer);
+            }
+            if ((fields & LORE) != 0) {
+                for (int i = count(buffer); i > 0; i--) {
+                    skipString(buffer);
+                }
+            }
+            if ((fields & ENCHANTS) != 0) {
+                for (int i = count(buffer); i > 0; i--) {
+                    readVarInt(buffer);
+                    readVarInt(buffer);
+                }
+            }
+            if ((fields & FLAGS) != 0) {
+                readVarInt(buffer);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Malformed stack", e);
+        }
+        return buffer.position();
+    }
+
+    /**
+     * Gets the compact field bits the given meta has, without {@link #EXTRA}.
+     */
+    static int metaFields(ItemMeta meta) {
+        int fields = 0;
+        if (meta.hasDisplayName()) {
+            fields |= NAME;
+        }
+        if (meta.hasLore()) {
+            fields |= LORE;
+        }
+        if (meta.hasEnchants()) {
+            fields |= ENCHANTS;
+        }
+        if (!meta.getItemFlags().isEmpty()) {
+            fields |= FLAGS;
+        }
+        if (meta.spigot().isUnbreakable()) {
+            fields |= UNBREAKABLE;
+        }
+        return fields;
+    }
+
+    /**
+     * Checks whether the given stack is written without YAML meta.
+     * This copies the meta, so callers writing the stack more than once should check once and pass the result on.
+     */
+    static boolean isCompact(EItemStack stack) {
+        Material type = stack.getType();
+        ItemMeta meta = type == Material.AIR ? null : stack.peekMeta();
+        return meta == null || Bukkit.getItemFactory().equals(meta, null) || isCompact(meta, type);
+    }
+
+    /**
+     * Checks whether the compact fields are all the given meta has.
+     */
+    static boolean isCompact(ItemMeta meta, Material type) {
+        ItemFactory factory = Bukkit.getItemFactory();
+        ItemMeta compact = factory.getItemMeta(type);
+        if (meta.hasDisplayName()) {
+            compact.setDisplayName(meta.getDisplayName());
+        }
+        if (meta.hasLore()) {
+            compact.setLore(meta.getLore());
+        }
+        for (Map.Entry<Enchantment, Integer> entry : meta.getEnchants().entrySet()) {
+            compact.addEnchant(entry.getKey(), entry.getValue(), true);
+        }
+        compact.addItemFlags(meta.getItemFlags().toArray(new ItemFlag[0]));
+        if (meta.spigot().isUnbreakable()) {
+            compact.spigot().setUnbreakable(true);
+        }
+        return factory.equals(meta, compact);
+    }
+
+    /**
+     * Gets the lore of the given meta, rejecting null lines, which cannot be encoded.
+     */
+    static List<String> lore(ItemMeta meta) {
+        List<String> lore = meta.getLore();
+        for (int i = 0; i < lore.size(); i++) {
+            if (lore.get(i) == null) {
+                throw new IllegalArgumentException("Lore line " + i + " is null");
+            }
+        }
+        return lore;
+    }
+
+    static int flagBits(ItemMeta meta) {
+        int bits = 0;
+        for (ItemFlag flag : meta.getItemFlags()) {
+            bits |= 1 << flag.ordinal();
+        }
+        return bits;
+    }
+
+    static ItemFlag[] toFlags(int bits) {
+        List<ItemFlag> flags = new ArrayList<>(Integer.bitCount(bits));
+        for (ItemFlag flag : ITEM_FLAGS) {
+            if ((bits & 1 << flag.ordinal()) != 0) {
+                flags.add(flag);
+            }
+        }
+        return flags.toArray(new ItemFlag[flags.size()]);
+    }
+
+    static String toYaml(ItemMeta meta) {
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("meta", meta);
+        return config.saveToString();
+    }
+
+    static ItemMeta fromYaml(String yaml) {
+        YamlConfiguration config = new YamlConfiguration();
+        try {
+            config.loadFromString(yaml);
+        } catch (InvalidConfigurationException e) {
+            throw new IllegalArgumentException("Invalid meta", e);
+        }
+        Object meta = config.get("meta");
+        if (!(meta instanceof ItemMeta)) {
+            throw new IllegalArgumentException("Invalid meta");
+        }
+        return (ItemMeta) meta;
+    }
+
+    static void writeVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Gets the number of bytes {@link #writeVarInt(ByteBuffer, int)} writes for the given value
+     */
+    static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable-length int");
+    }
+
+    /**
+     * Copies the bytes before the given position into a buffer twice as large, positioned after them
+     *
+     * @throws IllegalArgumentException if the buffer cannot grow any further
+     */
+    static ByteBuffer grow(ByteBuffer buffer, int position) {
+        int capacity = buffer.capacity();
+        if (capacity >= MAX_BUFFER) {
+            throw new IllegalArgumentException("Encoded data would exceed " + MAX_BUFFER + " bytes");
+        }
+        ByteBuffer grown = ByteBuffer.allocate((int) Math.min((long) capacity << 1, MAX_BUFFER));
+        grown.put(buffer.array(), 0, position);
+        return grown;
+    }
+
+    /**
+     * Reads a count of elements, each taking at least one byte
+     */
+    static int count(ByteBuffer buffer) {
+        int count = readVarInt(buffer);
+        if (count < 0 || count > buffer.remaining()) {
+            throw new IllegalArgumentException("Count " + count + " exceeds the remaining data");
+        }
+        return count;
+    }
+
+    static void writeString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(buffer, bytes.length);
+        buffer.put(bytes);
+    }
+
+    static String readString(ByteBuffer buffer) {
+        int length = readVarInt(buffer);
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("String length " + length + " exceeds the remaining data");
+        }
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    private static void skipString(ByteBuffer buffer) {
+        int length = readVarInt(buffer);
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("String length " + length + " exceeds the remaining data");
+        }
+        buffer.position(buffer.position() + length);
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges partial stacks of similar items and plans whether items fit, in roughly linear time.<br>
+ * Stacks are bucketed by {@link EItemStack#getSimilarityFingerprint()}, so items are only compared in depth
+ * with the few stacks sharing their fingerprint.
+ */
+public final class EItemCompactor {
+
+    private EItemCompactor() {
+    }
+
+    /**
+     * Merges partial stacks of similar items into the earliest slots, up to their maximum stack size.
+     * Emptied slots are set to null.
+     *
+     * @param contents contents to compact in place
+     * @return the slots which changed
+     */
+    public static Result compact(ItemStack[] contents) {
+        return compact(contents, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Merges partial stacks of similar items in the storage slots of the inventory.
+     * Only the changed slots are set back.
+     *
+     * @param inventory inventory to compact
+     * @return the slots which changed
+     */
+    public static Result compact(Inventory inventory) {
+        ItemStack[] contents = inventory.getStorageContents();
+        Result result = compact(contents, inventory.getMaxStackSize());
+        for (int slot : result.getChangedSlots()) {
+            inventory.setItem(slot, contents[slot]);
+        }
+        return result;
+    }
+
+    /**
+     * Merges partial stacks of similar items into the earliest slots.
+     *
+     * @param contents     contents to compact in place
+     * @param maxStackSize the largest stack allowed in a slot, on top of each item's own maximum
+     * @return the slots which changed
+     */
+    public static Result compact(ItemStack[] contents, int maxStackSize) {
+        Map<Long, List<Bucket>> buckets = new HashMap<>();
+        BitSet changed = new BitSet(contents.length);
+        int freed = 0;
+        for (int slot = 0; slot < contents.length; slot++) {
+            ItemStack stack = contents[slot];
+            if (isEmpty(stack)) {
+                continue;
+            }
+            int max = Math.min(stack.getMaxStackSize(), maxStackSize);
+            if (max <= 1) {
+                continue;
+            }
+            Bucket bucket = bucket(buckets, new EItemStack(stack));
+            int amount = stack.getAmount();
+            while (amount > 0 && !bucket.open.isEmpty()) {
+                int target = bucket.open.peek();
+                ItemStack targetStack = contents[target];
+                int moved = Math.min(max - targetStack.getAmount(), amount);
+                if (moved > 0) {
+                    targetStack.setAmount(targetStack.getAmount() + moved);
+                    amount -= moved;
+                    changed.set(target);
+                    changed.set(slot);
+                }
+                if (targetStack.getAmount() >= max) {
+                    bucket.open.poll();
+                }
+            }
+            if (amount == 0) {
+                contents[slot] = null;
+                freed++;
+            } else {
+                stack.setAmount(amount);
+                if (amount < max) {
+                    bucket.open.add(slot);
+                }
+            }
+        }
+        return new Result(changed, freed);
+    }
+
+    /**
+     * Checks whether all the given items fit into the storage slots of the inventory, without changing it
+     *
+     * @param inventory inventory to check
+     * @param items     items to fit
+     * @return true if every item fits
+     */
+    public static boolean canFit(Inventory inventory, ItemStack... items) {
+        for (int leftover : plan(inventory, items)) {
+            if (leftover > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Plans adding the given items to the storage slots of the inventory, without changing it.
+     * Items are placed in order, first onto similar partial stacks, then into empty slots.
+     *
+     * @param inventory inventory to check
+     * @param items     items to fit
+     * @return the amount of each item which would not fit, 0 if it fits completely
+     */
+    public static int[] plan(Inventory inventory, ItemStack... items) {
+        return plan(inventory.getStorageContents(), inventory.getMaxStackSize(), items);
+    }
+
+    /**
+     * Plans adding the given items to the contents, without changing them.
+     * Items are placed in order, first onto similar partial stacks, then into empty slots.
+     *
+     * @param contents     contents to check
+     * @param maxStackSize the largest stack allowed in a slot, on top of each item's own maximum
+     * @param items        items to fit
+     * @return the amount of each item which would not fit, 0 if it fits completely
+     */
+    public static int[] plan(ItemStack[] contents, int maxStackSize, ItemStack... items) {
+        Map<Long, List<Bucket>> buckets = new HashMap<>();
+        int empty = 0;
+        for (ItemStack stack : contents) {
+            if (isEmpty(stack)) {
+                empty++;
+                continue;
+            }
+            int max = Math.min(stack.getMaxStackSize(), maxStackSize);
+            if (stack.getAmount() < max) {
+                bucket(buckets, new EItemStack(stack)).room += max - stack.getAmount();
+            }
+        }
+
+        int[] leftovers = new int[items.length];
+        for (int i = 0; i < items.length; i++) {
+            ItemStack item = items[i];
+            if (isEmpty(item)) {
+                continue;
+            }
+            int max = Math.max(1, Math.min(item.getMaxStackSize(), maxStackSize));
+            Bucket bucket = bucket(buckets, new EItemStack(item));
+            int amount = item.getAmount();
+            int merged = (int) Math.min(bucket.room, amount);
+            bucket.room -= merged;
+            amount -= merged;
+            int slots = Math.min(empty, (amount + max - 1) / max);
+            empty -= slots;
+            int placed = (int) Math.min((long) slots * max, amount);
+            bucket.room += (long) slots * max - placed;
+            leftovers[i] = amount - placed;
+        }
+        return leftovers;
+    }
+
+    private static Bucket bucket(Map<Long, List<Bucket>> buckets, EItemStack stack) {
+        List<Bucket> candidates = buckets.computeIfAbsent(stack.getSimilarityFingerprint(), key -> new ArrayList<>(1));
+        for (Bucket candidate : candidates) {
+            if (candidate.representative.isSimilar(stack)) {
+                return candidate;
+            }
+        }
+        Bucket bucket = new Bucket(stack);
+        candidates.add(bucket);
+        return bucket;
+    }
+
+    private static boolean isEmpty(ItemStack stack) {
+        return stack == null || stack.getType() == Material.AIR || stack.getAmount() <= 0;
+    }
+
+    /**
+     * The outcome of a compaction
+     */
+    public static final class Result {
+
+        private final BitSet changed;
+        private final int freed;
+
+        private Result(BitSet changed, int freed) {
+            this.changed = changed;
+            this.freed = freed;
+        }
+
+        /**
+         * Gets the slots whose stack changed or was emptied
+         *
+         * @return changed slot indexes in ascending order
+         */
+        public int[] getChangedSlots() {
+            return changed.stream().toArray();
+        }
+
+        /**
+         * Checks whether the given slot changed
+         *
+         * @param slot slot index
+         * @return true if the slot changed
+         */
+        public boolean isChanged(int slot) {
+            return changed.get(slot);
+        }
+
+        /**
+         * Gets the number of slots emptied by merging
+         *
+         * @return number of freed slots
+         */
+        public int getFreedSlots() {
+            return freed;
+        }
+    }
+
+    private static final class Bucket {
+
+        private final EItemStack representative;
+        private final ArrayDeque<Integer> open = new ArrayDeque<>();
+        private long room;
+
+        private Bucket(EItemStack representative) {
+            this.representative = representative;
+        }
+    }
+}
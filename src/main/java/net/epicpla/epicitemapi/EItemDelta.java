@@ -0,0 +1,403 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Encodes items as the differences from the template they were created from, for syncing inventories between servers.
+ * <p>
+ * An item stamped by {@link EItemRegistry} is written as its registry id followed by only the fields which differ from the
+ * registered template: type, damage, amount, display name, the changed lore lines, enchantments, item flags and the unbreakable tag.
+ * Any other item, and any item whose meta has more than those fields, is written whole by {@link EItemCodec}.
+ * Both sides must have the same templates registered under the same ids.
+ * <p>
+ * Layout, every number being an unsigned variable-length int:
+ * <pre>
+ * kind byte: 0 = whole, followed by the {@link EItemCodec} form; 1 = delta; 2 = empty slot
+ * delta: registry id, field bits, [material id], [damage], [amount], [name present byte, name],
+ *        [line count, changed line count, (index, line)...], [enchantment count, (id, level)...], [flag bits], [unbreakable byte]
+ * </pre>
+ */
+public final class EItemDelta {
+
+    private static final byte WHOLE = 0;
+    private static final byte DELTA = 1;
+    private static final byte EMPTY = 2;
+
+    private static final int TYPE = 1;
+    private static final int DAMAGE = 1 << 1;
+    private static final int AMOUNT = 1 << 2;
+    private static final int NAME = 1 << 3;
+    private static final int LORE = 1 << 4;
+    private static final int ENCHANTS = 1 << 5;
+    private static final int FLAGS = 1 << 6;
+    private static final int UNBREAKABLE = 1 << 7;
+
+    private final EItemRegistry registry;
+    private final Map<String, Base> bases = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a delta codec whose bases are the templates of the given registry
+     *
+     * @param registry registry to look templates up in
+     */
+    public EItemDelta(final EItemRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Writes the given item at the current position of the buffer
+     *
+     * @param stack item to write, or null for an empty slot
+     * @param buffer buffer to write into
+     * @throws BufferOverflowException if the buffer has not enough space left
+     */
+    @SuppressWarnings("deprecation")
+    public void write(EItemStack stack, ByteBuffer buffer) {
+        if (stack == null) {
+            buffer.put(EMPTY);
+            return;
+        }
+        String id = stack.getType() == Material.AIR ? null : stack.getRegistryId();
+        Base base = id == null ? null : base(id);
+        ItemMeta meta = base == null ? null : stack.peekMeta();
+        if (meta == null) {
+            buffer.put(WHOLE);
+            EItemCodec.write(stack, buffer);
+            return;
+        }
+        if (!EItemCodec.isCompact(meta, stack.getType())) {
+            buffer.put(WHOLE);
+            EItemCodec.write(stack, buffer, false);
+            return;
+        }
+
+        Material type = stack.getType();
+        short damage = stack.getDurability();
+        int amount = stack.getAmount();
+        String name = meta.hasDisplayName() ? meta.getDisplayName() : null;
+        List<String> lore = meta.hasLore() ? EItemCodec.lore(meta) : Collections.<String>emptyList();
+        Map<Enchantment, Integer> enchantments = meta.getEnchants();
+        int flags = EItemCodec.flagBits(meta);
+        boolean unbreakable = meta.spigot().isUnbreakable();
+
+        int fields = 0;
+        if (type != base.type) {
+            fields |= TYPE;
+        }
+        if (damage != base.damage) {
+            fields |= DAMAGE;
+        }
+        if (amount != base.amount) {
+            fields |= AMOUNT;
+        }
+        if (!Objects.equals(name, base.name)) {
+            fields |= NAME;
+        }
+        if (!lore.equals(base.lore)) {
+            fields |= LORE;
+        }
+        if (!enchantments.equals(base.enchantments)) {
+            fields |= ENCHANTS;
+        }
+        if (flags != base.flags) {
+            fields |= FLAGS;
+        }
+        if (unbreakable != base.unbreakable) {
+            fields |= UNBREAKABLE;
+        }
+
+        buffer.put(DELTA);
+        EItemCodec.writeString(buffer, id);
+        EItemCodec.writeVarInt(buffer, fields);
+        if ((fields & TYPE) != 0) {
+            EItemCodec.writeVarInt(buffer, type.getId());
+        }
+        if ((fields & DAMAGE) != 0) {
+            EItemCodec.writeVarInt(buffer, damage & 0xFFFF);
+        }
+        if ((fields & AMOUNT) != 0) {
+            EItemCodec.writeVarInt(buffer, amount);
+        }
+        if ((fields & NAME) != 0) {
+            buffer.put((byte) (name != null ? 1 : 0));
+            if (name != null) {
+                EItemCodec.writeString(buffer, name);
+            }
+        }
+        if ((fields & LORE) != 0) {
+            int[] changed = new int[lore.size()];
+            int count = 0;
+            for (int i = 0; i < lore.size(); i++) {
+                if (i >= base.lore.size() || !lore.get(i).equals(base.lore.get(i))) {
+                    changed[count++] = i;
+                }
+            }
+            EItemCodec.writeVarInt(buffer, lore.size());
+            EItemCodec.writeVarInt(buffer, count);
+            for (int i = 0; i < count; i++) {
+                EItemCodec.writeVarInt(buffer, changed[i]);
+                EItemCodec.writeString(buffer, lore.get(changed[i]));
+            }
+        }
+        if ((fields & ENCHANTS) != 0) {
+            EItemCodec.writeVarInt(buffer, enchantments.size());
+            for (Map.Entry<Enchantment, Integer> entry : enchantments.entrySet()) {
+                EItemCodec.writeVarInt(buffer, entry.getKey().getId());
+                EItemCodec.writeVarInt(buffer, entry.getValue());
+            }
+        }
+        if ((fields & FLAGS) != 0) {
+            EItemCodec.writeVarInt(buffer, flags);
+        }
+        if ((fields & UNBREAKABLE) != 0) {
+            buffer.put((byte) (unbreakable ? 1 : 0));
+        }
+    }
+
+    /**
+     * Reads an item from the current position of the buffer
+     *
+     * @param buffer buffer to read from
+     * @return the item, or null for an empty slot
+     * @throws IllegalArgumentException if the data is not valid or names a template which is not registered
+     */
+    public EItemStack read(ByteBuffer buffer) {
+        try {
+            return readItem(buffer);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Malformed item", e);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private EItemStack readItem(ByteBuffer buffer) {
+        byte kind = buffer.get();
+        if (kind == EMPTY) {
+            return null;
+        }
+        if (kind == WHOLE) {
+            return EItemCodec.read(buffer);
+        }
+        if (kind != DELTA) {
+            throw new IllegalArgumentException("Unknown item kind " + kind);
+        }
+        String id = EItemCodec.readString(buffer);
+        Base base = base(id);
+        if (base == null) {
+            throw new IllegalArgumentException("No template is registered under " + id);
+        }
+        int fields = EItemCodec.readVarInt(buffer);
+
+        Material type = base.type;
+        if ((fields & TYPE) != 0) {
+            int typeId = EItemCodec.readVarInt(buffer);
+            type = EItemResolver.getMaterial(typeId);
+            if (type == null) {
+                throw new IllegalArgumentException("Unknown material id " + typeId);
+            }
+        }
+        short damage = (fields & DAMAGE) != 0 ? (short) EItemCodec.readVarInt(buffer) : base.damage;
+        int amount = (fields & AMOUNT) != 0 ? EItemCodec.readVarInt(buffer) : base.amount;
+        String name = base.name;
+        if ((fields & NAME) != 0) {
+            name = buffer.get() != 0 ? EItemCodec.readString(buffer) : null;
+        }
+        List<String> lore = base.lore;
+        if ((fields & LORE) != 0) {
+            int size = EItemCodec.readVarInt(buffer);
+            if (size < 0 || size > base.lore.size() + buffer.remaining()) {
+                throw new IllegalArgumentException("Line count " + size + " exceeds the remaining data");
+            }
+            String[] lines = new String[size];
+            for (int i = 0; i < size && i < base.lore.size(); i++) {
+                lines[i] = base.lore.get(i);
+            }
+            int count = EItemCodec.count(buffer);
+            for (int i = 0; i < count; i++) {
+                int index = EItemCodec.readVarInt(buffer);
+                if (index < 0 || index >= size) {
+                    throw new IllegalArgumentException("Line " + index + " is out of " + size + " lines");
+                }
+                lines[index] = EItemCodec.readString(buffer);
+            }
+            for (String line : lines) {
+                if (line == null) {
+                    throw new IllegalArgumentException("Missing lore line");
+                }
+            }
+            lore = Arrays.asList(lines);
+        }
+        Map<Enchantment, Integer> enchantments = base.enchantments;
+        if ((fields & ENCHANTS) != 0) {
+            int count = EItemCodec.count(buffer);
+            enchantments = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                int enchantmentId = EItemCodec.readVarInt(buffer);
+                Enchantment enchantment = EItemResolver.getEnchantment(enchantmentId);
+                if (enchantment == null) {
+                    throw new IllegalArgumentException("Unknown enchantment id " + enchantmentId);
+                }
+                enchantments.put(enchantment, EItemCodec.readVarInt(buffer));
+            }
+        }
+        int flags = (fields & FLAGS) != 0 ? EItemCodec.readVarInt(buffer) : base.flags;
+        boolean unbreakable = (fields & UNBREAKABLE) != 0 ? buffer.get() != 0 : base.unbreakable;
+
+        ItemMeta meta = Bukkit.getItemFactory().getItemMeta(type);
+        if (name != null) {
+            meta.setDisplayName(name);
+        }
+        if (!lore.isEmpty()) {
+            meta.setLore(new ArrayList<>(lore));
+        }
+        for (Map.Entry<Enchantment, Integer> entry : enchantments.entrySet()) {
+            meta.addEnchant(entry.getKey(), entry.getValue(), true);
+        }
+        if (flags != 0) {
+            meta.addItemFlags(EItemCodec.toFlags(flags));
+        }
+        if (unbreakable) {
+            meta.spigot().setUnbreakable(true);
+        }
+        ItemStack result = new ItemStack(type, amount, damage);
+        result.setItemMeta(meta);
+        return new EItemStack(result, meta);
+    }
+
+    /**
+     * Encodes the given items, such as the contents of an inventory
+     *
+     * @param stacks items to encode; null elements are empty slots
+     * @return encoded bytes
+     */
+    public byte[] encode(EItemStack... stacks) {
+        ByteBuffer buffer = ByteBuffer.allocate(256 + stacks.length * 32);
+        EItemCodec.writeVarInt(buffer, stacks.length);
+        for (EItemStack stack : stacks) {
+            int position = buffer.position();
+            while (true) {
+                try {
+                    write(stack, buffer);
+                    break;
+                } catch (BufferOverflowException e) {
+                    // Only the item which did not fit is written again
+                    buffer = EItemCodec.grow(buffer, position);
+                }
+            }
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    /**
+     * Decodes items encoded by {@link #encode(EItemStack...)}
+     *
+     * @param bytes encoded bytes
+     * @return the items; empty slots are null elements
+     * @throws IllegalArgumentException if the data is not valid or names a template which is not registered
+     */
+    public EItemStack[] decode(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int count;
+        try {
+            count = EItemCodec.count(buffer);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Malformed batch", e);
+        }
+        EItemStack[] stacks = new EItemStack[count];
+        for (int i = 0; i < count; i++) {
+            stacks[i] = read(buffer);
+        }
+        return stacks;
+    }
+
+    /**
+     * Gets the base for the given id, rebuilding it when the template registered under the id has changed
+     *
+     * @return the base, or null if no compact template is registered under the id
+     */
+    private Base base(String id) {
+        EItemTemplate template = registry.getTemplate(id);
+        if (template == null) {
+            bases.remove(id);
+            return null;
+        }
+        Base base = bases.get(id);
+        if (base == null || base.template != template) {
+            base = new Base(template);
+            bases.put(id, base);
+        }
+        return base.compact ? base : null;
+    }
+
+    /**
+     * The fields of a template, taken apart once
+     */
+    private static final class Base {
+
+        private final EItemTemplate template;
+        private final Material type;
+        private final short damage;
+        private final int amount;
+        private final String name;
+        private final List<String> lore;
+        private final Map<Enchantment, Integer> enchantments;
+        private final int flags;
+        private final boolean unbreakable;
+        private final boolean compact;
+
+        private Base(EItemTemplate template) {
+            ItemMeta meta = template.getMeta();
+            this.template = template;
+            this.type = template.getType();
+            this.damage = template.getDurability();
+            this.amount = template.getAmount();
+            this.name = meta != null && meta.hasDisplayName() ? meta.getDisplayName() : null;
+            this.lore = meta != null && meta.hasLore() ? Collections.unmodifiableList(meta.getLore()) : Collections.<String>emptyList();
+            this.enchantments = meta != null ? meta.getEnchants() : Collections.<Enchantment, Integer>emptyMap();
+            this.flags = meta != null ? EItemCodec.flagBits(meta) : 0;
+            this.unbreakable = meta != null && meta.spigot().isUnbreakable();
+            this.compact = meta == null || EItemCodec.isCompact(meta, type);
+        }
+    }
+}
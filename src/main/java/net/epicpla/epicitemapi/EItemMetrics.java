@@ -0,0 +1,356 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts and times the costly operations of this API: meta copies, clones, equality checks,
+ * map serialization and the binary codec.
+ * <p>
+ * Metrics are off unless the JVM is started with {@code -Depicitemapi.metrics=true}.
+ * The switch is read once into a constant, so when it is off the JIT drops every probe and the API pays nothing.
+ * Latencies are kept in histograms with one bucket per power of two nanoseconds.
+ */
+public final class EItemMetrics {
+
+    /**
+     * The system property which turns metrics on
+     */
+    public static final String PROPERTY = "epicitemapi.metrics";
+
+    /**
+     * Whether metrics are collected in this JVM
+     */
+    public static final boolean ENABLED = Boolean.getBoolean(PROPERTY);
+
+    /**
+     * The name of the MBean registered while the plugin is enabled
+     */
+    public static final String OBJECT_NAME = "net.epicpla.epicitemapi:type=Metrics";
+
+    private static final int BUCKETS = 65;
+    private static final Map<Operation, Stats> STATS;
+
+    static {
+        Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+        if (ENABLED) {
+            for (Operation operation : Operation.values()) {
+                stats.put(operation, new Stats());
+            }
+        }
+        STATS = stats;
+    }
+
+    private EItemMetrics() {
+    }
+
+    /**
+     * An operation which is counted and timed
+     */
+    public enum Operation {
+        /**
+         * A copy of an {@link org.bukkit.inventory.meta.ItemMeta}
+         */
+        META_COPY,
+        /**
+         * {@link EItemStack#clone()}
+         */
+        CLONE,
+        /**
+         * {@link EItemStack#equals(Object)} and the isSimilar methods
+         */
+        EQUALS,
+        /**
+         * {@link EItemStack#serialize()}
+         */
+        SERIALIZE,
+        /**
+         * {@link EItemStack#deserialize(Map)}
+         */
+        DESERIALIZE,
+        /**
+         * {@link EItemCodec#write(EItemStack, java.nio.ByteBuffer)}, with the bytes written
+         */
+        ENCODE,
+        /**
+         * {@link EItemCodec#read(java.nio.ByteBuffer)}, with the bytes read
+         */
+        DECODE
+    }
+
+    /**
+     * Starts timing an operation
+     *
+     * @return the start time to pass to {@link #record(Operation, long)}, or 0 if metrics are off
+     */
+    static long start() {
+        return ENABLED ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Records an operation started at the given time
+     */
+    static void record(Operation operation, long start) {
+        if (ENABLED) {
+            STATS.get(operation).record(System.nanoTime() - start, 0);
+        }
+    }
+
+    /**
+     * Records an operation started at the given time which wrote or read the given number of bytes
+     */
+    static void record(Operation operation, long start, int bytes) {
+        if (ENABLED) {
+            STATS.get(operation).record(System.nanoTime() - start, bytes);
+        }
+    }
+
+    /**
+     * Gets how many times the given operation ran
+     *
+     * @param operation operation to look up
+     * @return the count, or 0 if metrics are off
+     */
+    public static long getCount(Operation operation) {
+        return ENABLED ? STATS.get(operation).count.sum() : 0L;
+    }
+
+    /**
+     * Gets how many bytes the given operation wrote or read
+     *
+     * @param operation operation to look up
+     * @return the bytes, or 0 if metrics are off or the operation does not deal in bytes
+     */
+    public static long getBytes(Operation operation) {
+        return ENABLED ? STATS.get(operation).bytes.sum() : 0L;
+    }
+
+    /**
+     * Gets the mean latency of the given operation
+     *
+     * @param operation operation to look up
+     * @return the mean in nanoseconds, or 0 if it never ran
+     */
+    public static long getMeanNanos(Operation operation) {
+        if (!ENABLED) {
+            return 0L;
+        }
+        Stats stats = STATS.get(operation);
+        long count = stats.count.sum();
+        return count == 0 ? 0L : stats.nanos.sum() / count;
+    }
+
+    /**
+     * Gets an upper bound of the given percentile of the latency of the given operation.
+     * The bound is the top of the power of two bucket the percentile falls into.
+     *
+     * @param operation  operation to look up
+     * @param percentile percentile between 0 and 100
+     * @return the latency bound in nanoseconds, or 0 if it never ran
+     * @throws IllegalArgumentException if the percentile is out of range
+     */
+    public static long getPercentileNanos(Operation operation, double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+        }
+        if (!ENABLED) {
+            return 0L;
+        }
+        long[] buckets = new long[BUCKETS];
+        long total = 0;
+        LongAdder[] histogram = STATS.get(operation).histogram;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += buckets[i] = histogram[i].sum();
+        }
+        if (total == 0) {
+            return 0L;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i];
+            if (seen >= rank && buckets[i] != 0) {
+                return i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << i) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Clears every metric
+     */
+    public static void reset() {
+        for (Stats stats : STATS.values()) {
+            stats.reset();
+        }
+    }
+
+    /**
+     * Describes every operation which ran, one line each
+     *
+     * @return the lines, empty if metrics are off or nothing ran
+     */
+    public static List<String> report() {
+        List<String> lines = new ArrayList<>();
+        for (Operation operation : STATS.keySet()) {
+            long count = getCount(operation);
+            if (count == 0) {
+                continue;
+            }
+            StringBuilder line = new StringBuilder(operation.name()).append(": ").append(count)
+                    .append(" calls, mean ").append(getMeanNanos(operation))
+                    .append("ns, p50 <").append(getPercentileNanos(operation, 50))
+                    .append("ns, p99 <").append(getPercentileNanos(operation, 99)).append("ns");
+            long bytes = getBytes(operation);
+            if (bytes != 0) {
+                line.append(", ").append(bytes).append(" bytes");
+            }
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+
+    /**
+     * Registers the MBean under {@link #OBJECT_NAME} if metrics are on
+     */
+    static void register() throws JMException {
+        if (ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new MXBeanImpl(), new ObjectName(OBJECT_NAME));
+            } catch (InstanceAlreadyExistsException ignored) {
+                // Left over by an earlier enable of the plugin in this JVM
+            }
+        }
+    }
+
+    /**
+     * Unregisters the MBean if it is registered
+     */
+    static void unregister() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(new ObjectName(OBJECT_NAME));
+        } catch (InstanceNotFoundException ignored) {
+            // Never registered
+        }
+    }
+
+    private static final class Stats {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder[] histogram = new LongAdder[BUCKETS];
+
+        private Stats() {
+            for (int i = 0; i < BUCKETS; i++) {
+                histogram[i] = new LongAdder();
+            }
+        }
+
+        private void record(long elapsed, int bytes) {
+            count.increment();
+            nanos.add(elapsed);
+            if (bytes != 0) {
+                this.bytes.add(bytes);
+            }
+            histogram[64 - Long.numberOfLeadingZeros(Math.max(0L, elapsed))].increment();
+        }
+
+        private void reset() {
+            count.reset();
+            bytes.reset();
+            nanos.reset();
+            for (LongAdder bucket : histogram) {
+                bucket.reset();
+            }
+        }
+    }
+
+    private static final class MXBeanImpl implements EItemMetricsMXBean {
+
+        @Override
+        public Map<String, Long> getCounts() {
+            Map<String, Long> result = new LinkedHashMap<>();
+            for (Operation operation : Operation.values()) {
+                result.put(operation.name(), getCount(operation));
+            }
+            return result;
+        }
+
+        @Override
+        public Map<String, Long> getBytes() {
+            Map<String, Long> result = new LinkedHashMap<>();
+            result.put(Operation.ENCODE.name(), EItemMetrics.getBytes(Operation.ENCODE));
+            result.put(Operation.DECODE.name(), EItemMetrics.getBytes(Operation.DECODE));
+            return result;
+        }
+
+        @Override
+        public Map<String, Long> getMeanNanos() {
+            Map<String, Long> result = new LinkedHashMap<>();
+            for (Operation operation : Operation.values()) {
+                result.put(operation.name(), EItemMetrics.getMeanNanos(operation));
+            }
+            return result;
+        }
+
+        @Override
+        public Map<String, Long> getMedianNanos() {
+            return percentiles(50);
+        }
+
+        @Override
+        public Map<String, Long> getP99Nanos() {
+            return percentiles(99);
+        }
+
+        @Override
+        public void reset() {
+            EItemMetrics.reset();
+        }
+
+        private static Map<String, Long> percentiles(double percentile) {
+            Map<String, Long> result = new LinkedHashMap<>();
+            for (Operation operation : Operation.values()) {
+                result.put(operation.name(), getPercentileNanos(operation, percentile));
+            }
+            return result;
+        }
+    }
+}
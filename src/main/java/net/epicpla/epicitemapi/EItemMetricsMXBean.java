@@ -0,0 +1,65 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi;
+
+import java.util.Map;
+
+/**
+ * The JMX view of {@link EItemMetrics}, registered as {@value EItemMetrics#OBJECT_NAME}.<br>
+ * Every map is keyed by {@link EItemMetrics.Operation} name.
+ */
+public interface EItemMetricsMXBean {
+
+    /**
+     * @return how many times each operation ran
+     */
+    Map<String, Long> getCounts();
+
+    /**
+     * @return the bytes written by encoding and read by decoding
+     */
+    Map<String, Long> getBytes();
+
+    /**
+     * @return the mean latency of each operation in nanoseconds
+     */
+    Map<String, Long> getMeanNanos();
+
+    /**
+     * @return an upper bound of the median latency of each operation in nanoseconds
+     */
+    Map<String, Long> getMedianNanos();
+
+    /**
+     * @return an upper bound of the 99th percentile latency of each operation in nanoseconds
+     */
+    Map<String, Long> getP99Nanos();
+
+    /**
+     * Clears every metric
+     */
+    void reset();
+}
@@ -0,0 +1,210 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Prepares item descriptions on a worker pool and builds the items on the main thread.<br>
+ * Each tick, finished descriptions are built in a batch until the tick's time budget is used up;
+ * the rest wait for the next tick. The returned futures complete on the main thread, so their callbacks may use Bukkit.
+ * <p>
+ * The pipeline of the plugin is given by {@link EpicItemAPI#getPipeline()}.<br>
+ * e.g. <code>pipeline.submit(() -&gt; new EItemSpec(Material.PAPER).setLore(formatStats(player))).thenAccept(stack -&gt; ...);</code>
+ */
+public final class EItemPipeline {
+
+    private final ExecutorService workers;
+    private final Queue<Pending> ready = new ConcurrentLinkedQueue<>();
+    private final Set<CompletableFuture<EItemStack>> preparing = ConcurrentHashMap.newKeySet();
+    private final long budgetNanos;
+    private final BukkitTask task;
+    private volatile boolean shutdown;
+
+    /**
+     * Starts a pipeline with its own worker pool and a task running every tick
+     *
+     * @param plugin      plugin to own the task
+     * @param threads     number of worker threads
+     * @param budgetNanos time the main thread may spend building items each tick
+     */
+    public EItemPipeline(Plugin plugin, int threads, long budgetNanos) {
+        this.workers = Executors.newFixedThreadPool(threads, new WorkerFactory(plugin.getName()));
+        this.budgetNanos = budgetNanos;
+        this.task = Bukkit.getScheduler().runTaskTimer(plugin, this::drain, 1L, 1L);
+    }
+
+    /**
+     * Prepares a description on the worker pool, then builds it on the main thread
+     *
+     * @param description prepares the description; it must not use Bukkit objects which are not thread-safe
+     * @return the future item, completed on the main thread
+     */
+    public CompletableFuture<EItemStack> submit(Supplier<? extends EItemSpec> description) {
+        CompletableFuture<EItemStack> result = new CompletableFuture<>();
+        if (shutdown) {
+            result.completeExceptionally(new CancellationException("Pipeline is shut down"));
+            return result;
+        }
+        preparing.add(result);
+        try {
+            CompletableFuture.supplyAsync(description, workers).whenComplete((spec, error) -> {
+                preparing.remove(result);
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    enqueue(new Pending(spec, result));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            preparing.remove(result);
+            result.completeExceptionally(e);
+        }
+        if (shutdown) {
+            cancelPreparing();
+        }
+        return result;
+    }
+
+    /**
+     * Builds an already prepared description on the main thread
+     *
+     * @param description the description
+     * @return the future item, completed on the main thread
+     */
+    public CompletableFuture<EItemStack> submit(EItemSpec description) {
+        CompletableFuture<EItemStack> result = new CompletableFuture<>();
+        if (shutdown) {
+            result.completeExceptionally(new CancellationException("Pipeline is shut down"));
+        } else {
+            enqueue(new Pending(description, result));
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of descriptions waiting for the main thread
+     *
+     * @return number of descriptions ready to build
+     */
+    public int getBacklog() {
+        return ready.size();
+    }
+
+    /**
+     * Stops the task and the worker pool. Items not built yet are cancelled,
+     * including those still being prepared or queued on the worker pool.
+     */
+    public void shutdown() {
+        shutdown = true;
+        task.cancel();
+        workers.shutdownNow();
+        cancelPreparing();
+        cancelReady();
+    }
+
+    /**
+     * Queues a prepared description, cancelling it if the pipeline was shut down meanwhile
+     */
+    private void enqueue(Pending pending) {
+        ready.add(pending);
+        if (shutdown) {
+            cancelReady();
+        }
+    }
+
+    private void cancelPreparing() {
+        for (CompletableFuture<EItemStack> result : preparing) {
+            preparing.remove(result);
+            result.cancel(false);
+        }
+    }
+
+    private void cancelReady() {
+        Pending pending;
+        while ((pending = ready.poll()) != null) {
+            pending.result.cancel(false);
+        }
+    }
+
+    private void drain() {
+        long deadline = System.nanoTime() + budgetNanos;
+        Pending pending;
+        while ((pending = ready.poll()) != null) {
+            try {
+                pending.result.complete(pending.spec.build());
+            } catch (RuntimeException e) {
+                pending.result.completeExceptionally(e);
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                break;
+            }
+        }
+    }
+
+    private static final class Pending {
+
+        private final EItemSpec spec;
+        private final CompletableFuture<EItemStack> result;
+
+        private Pending(EItemSpec spec, CompletableFuture<EItemStack> result) {
+            this.spec = spec;
+            this.result = result;
+        }
+    }
+
+    private static final class WorkerFactory implements ThreadFactory {
+
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private WorkerFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, name + " Item Worker #" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Registers custom items under string ids, so that they can be identified without comparing names and lore.
+ * <p>
+ * Registered items, and every item created from them, carry their id in a hidden last lore line
+ * which {@link EItemStack#getRegistryId()} reads once and caches.
+ * Identifying an item is then a hash lookup of that id.
+ * Replacing the whole lore of an item drops its id; {@link #stamp(EItemStack, String)} puts it back.
+ * <p>
+ * Ids consist of letters, digits and {@code _ . : -}, and are at most {@value #MAX_ID_LENGTH} characters long.
+ * All methods are thread-safe.
+ */
+public final class EItemRegistry {
+
+    /**
+     * The maximum length of an id
+     */
+    public static final int MAX_ID_LENGTH = 64;
+
+    private static final Pattern ID = Pattern.compile("[A-Za-z0-9_.:-]{1," + MAX_ID_LENGTH + "}");
+    private static final EItemRegistry DEFAULT = new EItemRegistry();
+
+    private final Map<String, EItemTemplate> templates = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the registry shared by all plugins
+     *
+     * @return the shared registry
+     */
+    public static EItemRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Registers a copy of the given item, stamped with the given id
+     *
+     * @param id        id to register under
+     * @param prototype item to register; it is not changed
+     * @return the template items are created from
+     * @throws IllegalArgumentException if the id is not valid or already registered
+     */
+    public EItemTemplate register(String id, EItemStack prototype) {
+        checkId(id);
+        EItemTemplate template = new EItemTemplate(stamp(prototype.clone(), id));
+        if (templates.putIfAbsent(id, template) != null) {
+            throw new IllegalArgumentException("Id " + id + " is already registered");
+        }
+        return template;
+    }
+
+    /**
+     * Removes the given id. Items stamped with it keep their id, but are no longer identified.
+     *
+     * @param id id to remove
+     * @return true if the id was registered
+     */
+    public boolean unregister(String id) {
+        return templates.remove(id) != null;
+    }
+
+    /**
+     * Checks whether the given id is registered
+     *
+     * @param id id to check
+     * @return true if registered
+     */
+    public boolean isRegistered(String id) {
+        return templates.containsKey(id);
+    }
+
+    /**
+     * Gets the registered ids
+     *
+     * @return an unmodifiable view of the ids
+     */
+    public Set<String> getIds() {
+        return Collections.unmodifiableSet(templates.keySet());
+    }
+
+    /**
+     * Gets the template registered under the given id
+     *
+     * @param id id to look up
+     * @return the template, or null if the id is not registered
+     */
+    public EItemTemplate getTemplate(String id) {
+        return templates.get(id);
+    }
+
+    /**
+     * Creates a registered item with its default amount
+     *
+     * @param id id of the item
+     * @return a new item
+     * @throws IllegalArgumentException if the id is not registered
+     */
+    public EItemStack create(String id) {
+        return require(id).create();
+    }
+
+    /**
+     * Creates a registered item with the given amount
+     *
+     * @param id     id of the item
+     * @param amount stack size
+     * @return a new item
+     * @throws IllegalArgumentException if the id is not registered
+     */
+    public EItemStack create(String id, int amount) {
+        return require(id).create(amount);
+    }
+
+    /**
+     * Identifies the given item
+     *
+     * @param stack item to identify
+     * @return the template the item was registered with, or null if it has no id or its id is not registered
+     */
+    public EItemTemplate identify(EItemStack stack) {
+        String id = stack.getRegistryId();
+        return id == null ? null : templates.get(id);
+    }
+
+    /**
+     * Identifies the given item
+     *
+     * @param stack item to identify
+     * @return the template the item was registered with, or null if it has no id or its id is not registered
+     */
+    public EItemTemplate identify(ItemStack stack) {
+        return stack == null || !stack.hasItemMeta() ? null : identify(new EItemStack(stack));
+    }
+
+    /**
+     * Stamps the given id into an item, replacing any id it has.
+     * The id does not need to be registered.
+     *
+     * @param stack item to stamp
+     * @param id    id to stamp, or null to remove the id
+     * @return the given item
+     * @throws IllegalArgumentException if the id is not valid
+     */
+    public static EItemStack stamp(EItemStack stack, String id) {
+        if (id != null) {
+            checkId(id);
+        }
+        List<String> lore = HiddenTag.with(HiddenTag.REGISTRY, id, stack.getLore());
+        return stack.setLore(lore.isEmpty() ? null : lore);
+    }
+
+    private EItemTemplate require(String id) {
+        EItemTemplate template = templates.get(id);
+        if (template == null) {
+            throw new IllegalArgumentException("Id " + id + " is not registered");
+        }
+        return template;
+    }
+
+    private static void checkId(String id) {
+        if (id == null || !ID.matcher(id).matches()) {
+            throw new IllegalArgumentException("Invalid id: " + id);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi;
+
+import org.bukkit.Material;
+import org.bukkit.enchantments.Enchantment;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Resolves materials and enchantments by name or id from tables built once.<br>
+ * Names are matched ignoring case, a <code>minecraft:</code> prefix, and spaces or hyphens in place of underscores.
+ * Enchantments are also matched by their vanilla names, e.g. <code>sharpness</code> for {@link Enchantment#DAMAGE_ALL}.
+ * <p>
+ * The tables are built by {@link EpicItemAPI} when it is enabled, or on first use otherwise.
+ * Enchantments registered after that are still found through the slower Bukkit lookups.
+ */
+public final class EItemResolver {
+
+    private static final String[][] ENCHANTMENT_ALIASES = {
+            {"PROTECTION", "PROTECTION_ENVIRONMENTAL"},
+            {"FIRE_PROTECTION", "PROTECTION_FIRE"},
+            {"FEATHER_FALLING", "PROTECTION_FALL"},
+            {"BLAST_PROTECTION", "PROTECTION_EXPLOSIONS"},
+            {"PROJECTILE_PROTECTION", "PROTECTION_PROJECTILE"},
+            {"RESPIRATION", "OXYGEN"},
+            {"AQUA_AFFINITY", "WATER_WORKER"},
+            {"SHARPNESS", "DAMAGE_ALL"},
+            {"SMITE", "DAMAGE_UNDEAD"},
+            {"BANE_OF_ARTHROPODS", "DAMAGE_ARTHROPODS"},
+            {"LOOTING", "LOOT_BONUS_MOBS"},
+            {"EFFICIENCY", "DIG_SPEED"},
+            {"UNBREAKING", "DURABILITY"},
+            {"FORTUNE", "LOOT_BONUS_BLOCKS"},
+            {"POWER", "ARROW_DAMAGE"},
+            {"PUNCH", "ARROW_KNOCKBACK"},
+            {"FLAME", "ARROW_FIRE"},
+            {"INFINITY", "ARROW_INFINITE"},
+            {"LUCK_OF_THE_SEA", "LUCK"}
+    };
+
+    private static volatile Tables tables;
+
+    private EItemResolver() {
+    }
+
+    /**
+     * Builds the lookup tables, replacing any built before
+     */
+    public static void init() {
+        tables = new Tables();
+    }
+
+    /**
+     * Gets a material by its name or id
+     *
+     * @param name name or id of the material
+     * @return the material, or null if not found
+     */
+    public static Material getMaterial(String name) {
+        if (name == null) {
+            return null;
+        }
+        Tables tables = tables();
+        Material material = tables.materials.get(name);
+        if (material == null) {
+            material = tables.materials.get(normalize(name));
+        }
+        return material;
+    }
+
+    /**
+     * Gets a material by its id
+     *
+     * @param id id of the material
+     * @return the material, or null if not found
+     * @deprecated Magic value
+     */
+    @Deprecated
+    public static Material getMaterial(int id) {
+        Material[] materials = tables().materialsById;
+        return id >= 0 && id < materials.length ? materials[id] : null;
+    }
+
+    /**
+     * Gets an enchantment by its Bukkit name, vanilla name or id
+     *
+     * @param name name or id of the enchantment
+     * @return the enchantment, or null if not found
+     */
+    public static Enchantment getEnchantment(String name) {
+        if (name == null) {
+            return null;
+        }
+        Tables tables = tables();
+        Enchantment enchantment = tables.enchantments.get(name);
+        if (enchantment == null) {
+            enchantment = tables.enchantments.get(normalize(name));
+        }
+        return enchantment != null ? enchantment : Enchantment.getByName(name);
+    }
+
+    /**
+     * Gets an enchantment by its id
+     *
+     * @param id id of the enchantment
+     * @return the enchantment, or null if not found
+     * @deprecated Magic value
+     */
+    @Deprecated
+    public static Enchantment getEnchantment(int id) {
+        Enchantment[] enchantments = tables().enchantmentsById;
+        Enchantment enchantment = id >= 0 && id < enchantments.length ? enchantments[id] : null;
+        return enchantment != null ? enchantment : Enchantment.getById(id);
+    }
+
+    /**
+     * Gets one more than the largest enchantment id known when the tables were built
+     *
+     * @return the length of an array indexed by enchantment id
+     */
+    public static int getEnchantmentIdLimit() {
+        return tables().enchantmentsById.length;
+    }
+
+    private static Tables tables() {
+        Tables tables = EItemResolver.tables;
+        if (tables == null) {
+            tables = new Tables();
+            EItemResolver.tables = tables;
+        }
+        return tables;
+    }
+
+    private static String normalize(String name) {
+        String key = name.trim().toUpperCase(Locale.ROOT).replace(' ', '_').replace('-', '_');
+        return key.startsWith("MINECRAFT:") ? key.substring("MINECRAFT:".length()) : key;
+    }
+
+    private static final class Tables {
+
+        private final Map<String, Material> materials = new HashMap<>();
+        private final Material[] materialsById;
+        private final Map<String, Enchantment> enchantments = new HashMap<>();
+        private final Enchantment[] enchantmentsById;
+
+        @SuppressWarnings("deprecation")
+        private Tables() {
+            Material[] materialValues = Material.values();
+            int maxId = 0;
+            for (Material material : materialValues) {
+                maxId = Math.max(maxId, material.getId());
+            }
+            materialsById = new Material[maxId + 1];
+            for (Material material : materialValues) {
+                materials.put(material.name(), material);
+                materials.put(Integer.toString(material.getId()), material);
+                if (materialsById[material.getId()] == null) {
+                    materialsById[material.getId()] = material;
+                }
+            }
+
+            Enchantment[] enchantmentValues = Enchantment.values();
+            maxId = -1;
+            for (Enchantment enchantment : enchantmentValues) {
+                maxId = Math.max(maxId, enchantment.getId());
+            }
+            enchantmentsById = new Enchantment[maxId + 1];
+            for (Enchantment enchantment : enchantmentValues) {
+                enchantments.put(enchantment.getName(), enchantment);
+                enchantments.put(Integer.toString(enchantment.getId()), enchantment);
+                enchantmentsById[enchantment.getId()] = enchantment;
+            }
+            for (String[] alias : ENCHANTMENT_ALIASES) {
+                Enchantment enchantment = enchantments.get(alias[1]);
+                if (enchantment != null) {
+                    enchantments.putIfAbsent(alias[0], enchantment);
+                }
+            }
+        }
+    }
+}
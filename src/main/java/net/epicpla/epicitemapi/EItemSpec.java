@@ -0,0 +1,257 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemFlag;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A plain data description of an item which may be prepared on any thread.<br>
+ * It holds no {@link ItemStack} or {@link ItemMeta}; those are created by {@link #build()} on the main thread.<br>
+ * <code>set</code>xxx methods will return the object itself, like {@link EItemStack}.
+ *
+ * @see EItemPipeline
+ */
+public class EItemSpec {
+
+    private Material type;
+    private int amount = 1;
+    private short durability;
+    private String displayName;
+    private List<String> lore;
+    private final Map<Enchantment, Integer> enchantments = new LinkedHashMap<>();
+    private final Set<ItemFlag> itemFlags = EnumSet.noneOf(ItemFlag.class);
+    private boolean unbreakable;
+
+    /**
+     * Describes a single item of the given type
+     *
+     * @param type item material
+     */
+    public EItemSpec(final Material type) {
+        this.type = type;
+    }
+
+    /**
+     * Gets the type of the item
+     *
+     * @return Type of the item
+     */
+    public Material getType() {
+        return type;
+    }
+
+    /**
+     * Sets the type of the item
+     *
+     * @param type New type of the item
+     */
+    public EItemSpec setType(Material type) {
+        this.type = type;
+        return this;
+    }
+
+    /**
+     * Gets the amount of items
+     *
+     * @return Amount of items
+     */
+    public int getAmount() {
+        return amount;
+    }
+
+    /**
+     * Sets the amount of items
+     *
+     * @param amount New amount of items
+     */
+    public EItemSpec setAmount(int amount) {
+        this.amount = amount;
+        return this;
+    }
+
+    /**
+     * Gets the durability of the item
+     *
+     * @return Durability of the item
+     */
+    public short getDurability() {
+        return durability;
+    }
+
+    /**
+     * Sets the durability of the item
+     *
+     * @param durability Durability of the item
+     */
+    public EItemSpec setDurability(short durability) {
+        this.durability = durability;
+        return this;
+    }
+
+    /**
+     * Gets the display name, or null if none
+     *
+     * @return the display name
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Sets the display name.
+     *
+     * @param name the name to set, or null to remove it
+     */
+    public EItemSpec setDisplayName(String name) {
+        this.displayName = name;
+        return this;
+    }
+
+    /**
+     * Gets the lore, or null if none
+     *
+     * @return an unmodifiable list of lore
+     */
+    public List<String> getLore() {
+        return lore;
+    }
+
+    /**
+     * Sets the lore.
+     * Removes lore when given null.
+     *
+     * @param lore the lore that will be set
+     */
+    public EItemSpec setLore(List<String> lore) {
+        this.lore = lore == null ? null : Collections.unmodifiableList(new ArrayList<>(lore));
+        return this;
+    }
+
+    /**
+     * Sets the lore.
+     *
+     * @param lore the lore that will be set
+     */
+    public EItemSpec setLore(String... lore) {
+        return setLore(Arrays.asList(lore));
+    }
+
+    /**
+     * Gets the enchantments and their levels
+     *
+     * @return an unmodifiable map of enchantments
+     */
+    public Map<Enchantment, Integer> getEnchantments() {
+        return Collections.unmodifiableMap(enchantments);
+    }
+
+    /**
+     * Adds an enchantment, ignoring level restrictions
+     *
+     * @param ench  Enchantment to add
+     * @param level Level of the enchantment
+     */
+    public EItemSpec addUnsafeEnchantment(Enchantment ench, int level) {
+        enchantments.put(ench, level);
+        return this;
+    }
+
+    /**
+     * Gets the item flags
+     *
+     * @return an unmodifiable set of item flags
+     */
+    public Set<ItemFlag> getItemFlags() {
+        return Collections.unmodifiableSet(itemFlags);
+    }
+
+    /**
+     * Adds item flags
+     *
+     * @param itemFlags The hideflags which shouldn't be rendered
+     */
+    public EItemSpec addItemFlags(ItemFlag... itemFlags) {
+        Collections.addAll(this.itemFlags, itemFlags);
+        return this;
+    }
+
+    /**
+     * Return if the unbreakable tag is true
+     *
+     * @return true if the unbreakable tag is true
+     */
+    public boolean isUnbreakable() {
+        return unbreakable;
+    }
+
+    /**
+     * Sets the unbreakable tag
+     *
+     * @param unbreakable true if set unbreakable
+     */
+    public EItemSpec setUnbreakable(boolean unbreakable) {
+        this.unbreakable = unbreakable;
+        return this;
+    }
+
+    /**
+     * Creates the described item. Must be called on the main thread.
+     *
+     * @return a new item
+     */
+    public EItemStack build() {
+        ItemStack stack = new ItemStack(type, amount, durability);
+        if (displayName == null && lore == null && enchantments.isEmpty() && itemFlags.isEmpty() && !unbreakable) {
+            return new EItemStack(stack, null);
+        }
+        ItemMeta meta = Bukkit.getItemFactory().getItemMeta(type);
+        meta.setDisplayName(displayName);
+        meta.setLore(lore);
+        for (Map.Entry<Enchantment, Integer> entry : enchantments.entrySet()) {
+            meta.addEnchant(entry.getKey(), entry.getValue(), true);
+        }
+        meta.addItemFlags(itemFlags.toArray(new ItemFlag[0]));
+        if (unbreakable) {
+            meta.spigot().setUnbreakable(true);
+        }
+        stack.setItemMeta(meta);
+        return new EItemStack(stack, meta);
+    }
+}
@@ -35,17 +35,37 @@ import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.material.MaterialData;
 
+import java.security.SecureRandom;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * Allows simply manipulating an {@link ItemStack}. <br>
  * Always changes the {@link ItemStack}'s content directly.<br>
  * <code>set</code>xxx methods will return the object itself except {@link #setItemMeta(ItemMeta)}.<br>
- * e.g. <code>new EItemStack(stack).setDisplayName("FooBar").setLore("Foo", "Bar");</code>
+ * e.g. <code>new EItemStack(stack).setDisplayName("FooBar").setLore("Foo", "Bar");</code><br>
+ * Chained meta setters can share one {@link ItemMeta} copy by using {@link #editMeta(Consumer)}
+ * or {@link #beginMeta()}/{@link #commitMeta()}.<br>
+ * Meta getters read from a cached snapshot which is dropped whenever the stack is changed through this object
+ * or handed out by {@link #getItemStack()}.<br>
+ * {@link #clone()} is copy-on-write for stacks this object created: the clone shares the {@link ItemStack} until either object changes it.<br>
+ * {@link #freeze()} gives an immutable copy which may be shared between threads.
  */
 public class EItemStack implements Cloneable, ConfigurationSerializable {
 
     private ItemStack handle;
+    private Share share;
+    private boolean owned;
+    private ItemMeta pendingMeta;
+    private ItemMeta metaView;
+    private int[] enchantmentLevels;
+    private long fingerprint;
+    private boolean fingerprinted;
+    private String registryId;
+    private boolean registryIdRead;
+    private long uniqueId;
+    private boolean uniqueIdRead;
+    private int metaDepth;
 
     /**
      * Does not create a new ItemStack but manipulates existing {@link ItemStack}
@@ -55,12 +75,45 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
         this.handle = handle;
     }
 
+    /**
+     * For clones and subclasses which provide the {@link ItemStack} later
+     */
+    EItemStack() {
+    }
+
+    /**
+     * Manipulates an {@link ItemStack} created for this object alone, whose meta is known to be equal to the given one
+     * @param handle {@link ItemStack} to be manipulated, not referenced by anything else
+     * @param metaView meta equal to the handle's, not referenced by anything else, or null if not known
+     */
+    EItemStack(final ItemStack handle, final ItemMeta metaView) {
+        this.handle = handle;
+        this.metaView = metaView;
+        this.owned = true;
+    }
+
     /**
      * Gets the {@link ItemStack} being manipulated
+     * <p>
+     * As the returned stack may be changed by the caller, the cached meta snapshot is dropped,
+     * and a stack shared with clones is no longer shared.
+     * Call {@link #refresh()} if the stack is changed after this method returned.
+     *
      * @return {@link ItemStack} being manipulated
      */
     public ItemStack getItemStack() {
-        return handle;
+        invalidate();
+        ItemStack stack = mutableHandle();
+        owned = false;
+        return stack;
+    }
+
+    /**
+     * Drops the cached meta snapshot so that the next read sees changes made directly to the {@link ItemStack}
+     */
+    public EItemStack refresh() {
+        invalidate();
+        return this;
     }
 
     /**
@@ -72,6 +125,7 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
     @Deprecated
     public EItemStack(final int type) {
         handle = new ItemStack(type);
+        owned = true;
     }
 
     /**
@@ -81,6 +135,7 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      */
     public EItemStack(final Material type) {
         handle = new ItemStack(type);
+        owned = true;
     }
 
     /**
@@ -93,6 +148,7 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
     @Deprecated
     public EItemStack(final int type, final int amount) {
         handle = new ItemStack(type, amount);
+        owned = true;
     }
 
     /**
@@ -103,6 +159,7 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      */
     public EItemStack(final Material type, final int amount) {
         handle = new ItemStack(type, amount);
+        owned = true;
     }
 
     /**
@@ -116,6 +173,7 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
     @Deprecated
     public EItemStack(final int type, final int amount, final short damage) {
         handle = new ItemStack(type, amount, damage);
+        owned = true;
     }
 
     /**
@@ -127,6 +185,7 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      */
     public EItemStack(final Material type, final int amount, final short damage) {
         handle = new ItemStack(type, amount, damage);
+        owned = true;
     }
 
     /**
@@ -139,6 +198,7 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
     @Deprecated
     public EItemStack(final int type, final int amount, final short damage, final Byte data) {
         handle = new ItemStack(type, amount, damage, data);
+        owned = true;
     }
 
     /**
@@ -151,6 +211,7 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
     @Deprecated
     public EItemStack(final Material type, final int amount, final short damage, final Byte data) {
         handle = new ItemStack(type, amount, damage, data);
+        owned = true;
     }
 
     /**
@@ -160,7 +221,7 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      */
     @Utility
     public Material getType() {
-        return handle.getType();
+        return handle().getType();
     }
 
     /**
@@ -172,7 +233,8 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      */
     @Utility
     public EItemStack setType(Material type) {
-        handle.setType(type);
+        invalidate();
+        mutableHandle().setType(type);
         return this;
     }
 
@@ -184,7 +246,7 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      */
     @Deprecated
     public int getTypeId() {
-        return handle.getTypeId();
+        return handle().getTypeId();
     }
 
     /**
@@ -197,7 +259,8 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      */
     @Deprecated
     public EItemStack setTypeId(int type) {
-        handle.setTypeId(type);
+        invalidate();
+        mutableHandle().setTypeId(type);
         return this;
     }
 
@@ -207,7 +270,7 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      * @return Amount of items in this stack
      */
     public int getAmount() {
-        return handle.getAmount();
+        return handle().getAmount();
     }
 
     /**
@@ -216,7 +279,7 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      * @param amount New amount of items in this stack
      */
     public EItemStack setAmount(int amount) {
-        handle.setAmount(amount);
+        mutableHandle().setAmount(amount);
         return this;
     }
 
@@ -226,7 +289,8 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      * @return MaterialData for this item
      */
     public MaterialData getData() {
-        return handle.getData();
+        MaterialData data = handle().getData();
+        return share != null && data != null ? data.clone() : data;
     }
 
     /**
@@ -235,7 +299,8 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      * @param data New MaterialData for this item
      */
     public EItemStack setData(MaterialData data) {
-        handle.setData(data);
+        invalidate();
+        mutableHandle().setData(data);
         return this;
     }
 
@@ -245,7 +310,8 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      * @param durability Durability of this item
      */
     public EItemStack setDurability(final short durability) {
-        handle.setDurability(durability);
+        invalidate();
+        mutableHandle().setDurability(durability);
         return this;
     }
 
@@ -255,7 +321,7 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      * @return Durability of this item
      */
     public short getDurability() {
-        return handle.getDurability();
+        return handle().getDurability();
     }
 
     /**
@@ -266,13 +332,13 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      */
     @Utility
     public int getMaxStackSize() {
-        return handle.getMaxStackSize();
+        return handle().getMaxStackSize();
     }
 
     @Override
     @Utility
     public String toString() {
-        return handle.toString();
+        return handle().toString();
     }
 
     @Override
@@ -286,7 +352,15 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
         }
 
         EItemStack stack = (EItemStack) obj;
-        return handle.getAmount() == stack.handle.getAmount() && handle.isSimilar(stack.handle);
+        if (handle() == stack.handle()) {
+            return true;
+        }
+        long start = EItemMetrics.start();
+        boolean equal = handle().getAmount() == stack.handle().getAmount()
+                && getSimilarityFingerprint() == stack.getSimilarityFingerprint()
+                && handle().isSimilar(stack.handle());
+        EItemMetrics.record(EItemMetrics.Operation.EQUALS, start);
+        return equal;
     }
 
     /**
@@ -298,7 +372,13 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      */
     @Utility
     public boolean isSimilar(ItemStack stack) {
-        return handle.isSimilar(stack);
+        if (stack == null || stack.getType() != handle().getType() || stack.getDurability() != handle().getDurability()) {
+            return false;
+        }
+        long start = EItemMetrics.start();
+        boolean similar = handle().isSimilar(stack);
+        EItemMetrics.record(EItemMetrics.Operation.EQUALS, start);
+        return similar;
     }
 
     /**
@@ -310,18 +390,114 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      */
     @Utility
     public boolean isSimilar(EItemStack stack) {
-        return handle.isSimilar(stack.handle);
+        long start = EItemMetrics.start();
+        boolean similar = getSimilarityFingerprint() == stack.getSimilarityFingerprint() && handle().isSimilar(stack.handle());
+        EItemMetrics.record(EItemMetrics.Operation.EQUALS, start);
+        return similar;
     }
 
+    /**
+     * Creates a copy of this stack.
+     * <p>
+     * If this object created its {@link ItemStack} and has not handed it out, the copy shares it
+     * until either of them changes it, so copies which are never changed cost no {@link ItemStack} copy.
+     * Otherwise the stack may still be changed from outside, e.g. through an inventory, and is copied at once.
+     *
+     * @return a copy of this stack
+     */
     @Override
     public EItemStack clone() {
-        return new EItemStack(handle.clone());
+        long start = EItemMetrics.start();
+        EItemStack clone;
+        if (isEditingMeta()) {
+            ItemStack stack = handle().clone();
+            stack.setItemMeta(pendingMeta);
+            clone = new EItemStack(stack, null);
+        } else if (share == null && !owned) {
+            clone = new EItemStack(handle().clone(), null);
+        } else {
+            if (share == null) {
+                share = new Share(handle());
+            }
+            clone = new EItemStack();
+            clone.share = share;
+            clone.enchantmentLevels = enchantmentLevels;
+            clone.fingerprint = fingerprint;
+            clone.fingerprinted = fingerprinted;
+            clone.registryId = registryId;
+            clone.registryIdRead = registryIdRead;
+            clone.uniqueId = uniqueId;
+            clone.uniqueIdRead = uniqueIdRead;
+        }
+        EItemMetrics.record(EItemMetrics.Operation.CLONE, start);
+        return clone;
     }
 
     @Override
     @Utility
     public int hashCode() {
-        return handle.hashCode() * 31 + 1;
+        long fingerprint = getSimilarityFingerprint();
+        return (int) (fingerprint ^ (fingerprint >>> 32)) * 31 + handle().getAmount();
+    }
+
+    /**
+     * Gets a 64-bit hash of everything {@link #isSimilar(EItemStack)} compares:
+     * type, durability, display name, lore, enchantments, item flags and the unbreakable tag.
+     * <p>
+     * Similar stacks always have the same fingerprint, so different fingerprints mean the stacks are not similar.
+     * The fingerprint is cached until the stack is changed through this object.
+     * During a meta edit session, it reflects the last committed meta like the other comparisons do.
+     *
+     * @return the similarity fingerprint
+     */
+    public long getSimilarityFingerprint() {
+        if (isEditingMeta()) {
+            return computeFingerprint(copyMeta());
+        }
+        if (!fingerprinted) {
+            fingerprint = computeFingerprint(readMeta());
+            fingerprinted = true;
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Computes the fingerprint of the handle's type and durability and the given meta.
+     */
+    long computeFingerprint(ItemMeta meta) {
+        long hash = mix(handle().getType().ordinal() * 0x10000L + (handle().getDurability() & 0xFFFF));
+        if (meta == null) {
+            return hash;
+        }
+        if (meta.hasDisplayName()) {
+            hash = mix(hash ^ 0x100000000L ^ meta.getDisplayName().hashCode());
+        }
+        if (meta.hasLore()) {
+            for (String line : meta.getLore()) {
+                hash = mix(hash ^ 0x200000000L ^ (line == null ? 0 : line.hashCode()));
+            }
+        }
+        if (meta.hasEnchants()) {
+            long enchantments = 0;
+            for (Map.Entry<Enchantment, Integer> entry : meta.getEnchants().entrySet()) {
+                enchantments += mix(entry.getKey().getName().hashCode() * 0x100000000L + entry.getValue());
+            }
+            hash = mix(hash ^ enchantments);
+        }
+        long flags = 0;
+        for (ItemFlag flag : meta.getItemFlags()) {
+            flags |= 1L << flag.ordinal();
+        }
+        if (meta.spigot().isUnbreakable()) {
+            flags |= 1L << 63;
+        }
+        return mix(hash ^ flags);
+    }
+
+    private static long mix(long hash) {
+        hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+        hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
     }
 
     /**
@@ -331,7 +507,10 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      * @return True if this has the given enchantment
      */
     public boolean containsEnchantment(Enchantment ench) {
-        return handle.containsEnchantment(ench);
+        if (isEditingMeta()) {
+            return pendingMeta.hasEnchant(ench);
+        }
+        return handle().containsEnchantment(ench);
     }
 
     /**
@@ -341,7 +520,10 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      * @return Level of the enchantment, or 0
      */
     public int getEnchantmentLevel(Enchantment ench) {
-        return handle.getEnchantmentLevel(ench);
+        if (isEditingMeta()) {
+            return pendingMeta.getEnchantLevel(ench);
+        }
+        return handle().getEnchantmentLevel(ench);
     }
 
     /**
@@ -350,7 +532,101 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      * @return Map of enchantments.
      */
     public Map<Enchantment, Integer> getEnchantments() {
-        return handle.getEnchantments();
+        if (isEditingMeta()) {
+            return pendingMeta.getEnchants();
+        }
+        return handle().getEnchantments();
+    }
+
+    /**
+     * Gets the level of the enchantment with the given id, without boxing.
+     * The levels are cached until the stack is changed through this object.
+     *
+     * @param id id of the enchantment, see {@link Enchantment#getId()}
+     * @return Level of the enchantment, or 0
+     */
+    public int getEnchantmentLevel(int id) {
+        int[] levels = enchantmentLevels();
+        return id >= 0 && id < levels.length ? levels[id] : 0;
+    }
+
+    /**
+     * Copies the levels of all enchantments into an array indexed by enchantment id.
+     * Ids without an enchantment are set to 0.
+     *
+     * @param levels array to reuse, or null; a new one is allocated only if it is too short
+     * @return the array holding the levels
+     * @see EItemResolver#getEnchantmentIdLimit()
+     */
+    public int[] getEnchantmentLevels(int[] levels) {
+        int[] current = enchantmentLevels();
+        int length = Math.max(current.length, EItemResolver.getEnchantmentIdLimit());
+        if (levels == null || levels.length < length) {
+            levels = new int[length];
+        }
+        System.arraycopy(current, 0, levels, 0, current.length);
+        Arrays.fill(levels, current.length, levels.length, 0);
+        return levels;
+    }
+
+    /**
+     * Performs the given action for each enchantment on this item, without boxing or building a map.
+     *
+     * @param action receives the enchantment id and level
+     */
+    public void forEachEnchantment(IntBiConsumer action) {
+        int[] levels = enchantmentLevels();
+        for (int id = 0; id < levels.length; id++) {
+            if (levels[id] != 0) {
+                action.accept(id, levels[id]);
+            }
+        }
+    }
+
+    /**
+     * Adds enchantments from an array indexed by enchantment id, ignoring level restrictions.
+     * Entries of 0 are skipped. The meta is written back once for all of them.
+     *
+     * @param levels levels indexed by enchantment id
+     * @throws IllegalArgumentException if an id has no enchantment
+     */
+    @SuppressWarnings("deprecation")
+    public EItemStack addUnsafeEnchantmentLevels(int[] levels) {
+        ItemMeta itemMeta = metaForWrite();
+        enchantmentLevels = null;
+        for (int id = 0; id < levels.length; id++) {
+            if (levels[id] != 0) {
+                Enchantment enchantment = EItemResolver.getEnchantment(id);
+                if (enchantment == null) {
+                    throw new IllegalArgumentException("Unknown enchantment id " + id);
+                }
+                itemMeta.addEnchant(enchantment, levels[id], true);
+            }
+        }
+        writeMeta(itemMeta);
+        return this;
+    }
+
+    /**
+     * Gets the enchantment levels indexed by id. The returned array must not be changed.
+     * Within a meta edit session, the cache is dropped by every setter which changes enchantments.
+     */
+    @SuppressWarnings("deprecation")
+    int[] enchantmentLevels() {
+        if (enchantmentLevels != null) {
+            return enchantmentLevels;
+        }
+        Map<Enchantment, Integer> enchantments = isEditingMeta() ? pendingMeta.getEnchants() : handle().getEnchantments();
+        int length = EItemResolver.getEnchantmentIdLimit();
+        for (Enchantment enchantment : enchantments.keySet()) {
+            length = Math.max(length, enchantment.getId() + 1);
+        }
+        int[] levels = new int[length];
+        for (Map.Entry<Enchantment, Integer> entry : enchantments.entrySet()) {
+            levels[entry.getKey().getId()] = entry.getValue();
+        }
+        enchantmentLevels = levels;
+        return levels;
     }
 
     /**
@@ -368,7 +644,17 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      */
     @Utility
     public EItemStack addEnchantments(Map<Enchantment, Integer> enchantments) {
-        handle.addEnchantments(enchantments);
+        if (isEditingMeta()) {
+            if (enchantments == null) {
+                throw new IllegalArgumentException("Enchantments cannot be null");
+            }
+            for (Map.Entry<Enchantment, Integer> entry : enchantments.entrySet()) {
+                addEnchantment(entry.getKey(), entry.getValue());
+            }
+            return this;
+        }
+        invalidate();
+        mutableHandle().addEnchantments(enchantments);
         return this;
     }
 
@@ -385,7 +671,22 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      */
     @Utility
     public EItemStack addEnchantment(Enchantment ench, int level) {
-        handle.addEnchantment(ench, level);
+        if (isEditingMeta()) {
+            if (ench == null) {
+                throw new IllegalArgumentException("Enchantment cannot be null");
+            }
+            if (level < ench.getStartLevel() || level > ench.getMaxLevel()) {
+                throw new IllegalArgumentException("Enchantment level is either too low or too high (given " + level + ", bounds are " + ench.getStartLevel() + " to " + ench.getMaxLevel() + ")");
+            }
+            if (!ench.canEnchantItem(handle())) {
+                throw new IllegalArgumentException("Specified enchantment cannot be applied to this itemstack");
+            }
+            pendingMeta.addEnchant(ench, level, true);
+            enchantmentLevels = null;
+            return this;
+        }
+        invalidate();
+        mutableHandle().addEnchantment(ench, level);
         return this;
     }
 
@@ -400,7 +701,15 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      */
     @Utility
     public EItemStack addUnsafeEnchantments(Map<Enchantment, Integer> enchantments) {
-        handle.addUnsafeEnchantments(enchantments);
+        if (isEditingMeta()) {
+            for (Map.Entry<Enchantment, Integer> entry : enchantments.entrySet()) {
+                pendingMeta.addEnchant(entry.getKey(), entry.getValue(), true);
+            }
+            enchantmentLevels = null;
+            return this;
+        }
+        invalidate();
+        mutableHandle().addUnsafeEnchantments(enchantments);
         return this;
     }
 
@@ -417,7 +726,13 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      * @param level Level of the enchantment
      */
     public EItemStack addUnsafeEnchantment(Enchantment ench, int level) {
-        handle.addUnsafeEnchantment(ench, level);
+        if (isEditingMeta()) {
+            pendingMeta.addEnchant(ench, level, true);
+            enchantmentLevels = null;
+            return this;
+        }
+        invalidate();
+        mutableHandle().addUnsafeEnchantment(ench, level);
         return this;
     }
 
@@ -429,28 +744,37 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      * @return Previous level, or 0
      */
     public int removeEnchantment(Enchantment ench) {
-        return handle.removeEnchantment(ench);
+        if (isEditingMeta()) {
+            int level = pendingMeta.getEnchantLevel(ench);
+            pendingMeta.removeEnchant(ench);
+            enchantmentLevels = null;
+            return level;
+        }
+        invalidate();
+        return mutableHandle().removeEnchantment(ench);
     }
 
     @Utility
     public Map<String, Object> serialize() {
+        long start = EItemMetrics.start();
         Map<String, Object> result = new LinkedHashMap<>();
 
-        result.put("type", handle.getType().name());
+        result.put("type", handle().getType().name());
 
-        if (handle.getDurability() != 0) {
-            result.put("damage", handle.getDurability());
+        if (handle().getDurability() != 0) {
+            result.put("damage", handle().getDurability());
         }
 
-        if (handle.getAmount() != 1) {
-            result.put("amount", handle.getAmount());
+        if (handle().getAmount() != 1) {
+            result.put("amount", handle().getAmount());
         }
 
-        ItemMeta meta = handle.getItemMeta();
+        ItemMeta meta = readMeta();
         if (!Bukkit.getItemFactory().equals(meta, null)) {
-            result.put("meta", meta);
+            result.put("meta", meta.clone());
         }
 
+        EItemMetrics.record(EItemMetrics.Operation.SERIALIZE, start);
         return result;
     }
 
@@ -462,7 +786,8 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      * @see ConfigurationSerializable
      */
     public static EItemStack deserialize(Map<String, Object> args) {
-        Material type = Material.getMaterial((String) args.get("type"));
+        long start = EItemMetrics.start();
+        Material type = EItemResolver.getMaterial((String) args.get("type"));
         short damage = 0;
         int amount = 1;
 
@@ -483,10 +808,14 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
                 Map<?, ?> map = (Map<?, ?>) raw;
 
                 for (Map.Entry<?, ?> entry : map.entrySet()) {
-                    Enchantment enchantment = Enchantment.getByName(entry.getKey().toString());
+                    Object level = entry.getValue();
+                    if (!(level instanceof Integer)) {
+                        continue;
+                    }
+                    Enchantment enchantment = EItemResolver.getEnchantment(entry.getKey().toString());
 
-                    if ((enchantment != null) && (entry.getValue() instanceof Integer)) {
-                        result.addUnsafeEnchantment(enchantment, (Integer) entry.getValue());
+                    if (enchantment != null) {
+                        result.addUnsafeEnchantment(enchantment, (Integer) level);
                     }
                 }
             }
@@ -497,7 +826,8 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
             }
         }
 
-        return new EItemStack(result);
+        EItemMetrics.record(EItemMetrics.Operation.DESERIALIZE, start);
+        return new EItemStack(result, null);
     }
 
     /**
@@ -506,7 +836,13 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      * @return a copy of the current ItemStack's ItemData
      */
     public ItemMeta getItemMeta() {
-        return handle.getItemMeta();
+        if (isEditingMeta() || metaView != null) {
+            long start = EItemMetrics.start();
+            ItemMeta meta = (isEditingMeta() ? pendingMeta : metaView).clone();
+            EItemMetrics.record(EItemMetrics.Operation.META_COPY, start);
+            return meta;
+        }
+        return copyMeta();
     }
 
     /**
@@ -515,7 +851,10 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      * @return Returns true if some meta data has been set for this item
      */
     public boolean hasItemMeta() {
-        return handle.hasItemMeta();
+        if (isEditingMeta()) {
+            return !Bukkit.getItemFactory().equals(pendingMeta, null);
+        }
+        return handle().hasItemMeta();
     }
 
     /**
@@ -528,7 +867,240 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      *                                  the {@link ItemFactory}
      */
     public boolean setItemMeta(ItemMeta itemMeta) {
-        return handle.setItemMeta(itemMeta);
+        if (isEditingMeta()) {
+            ItemFactory factory = Bukkit.getItemFactory();
+            enchantmentLevels = null;
+            if (itemMeta == null) {
+                pendingMeta = factory.getItemMeta(handle().getType());
+                return true;
+            }
+            if (!factory.isApplicable(itemMeta, handle())) {
+                return false;
+            }
+            ItemMeta meta = factory.asMetaFor(itemMeta, handle());
+            pendingMeta = meta == itemMeta ? itemMeta.clone() : meta;
+            return true;
+        }
+        invalidate();
+        return mutableHandle().setItemMeta(itemMeta);
+    }
+
+    /**
+     * Starts a meta edit session.
+     * <p>
+     * Until the matching {@link #commitMeta()}, every meta setter works on a single
+     * working {@link ItemMeta} instead of copying the meta back and forth, so a chain
+     * of setters costs one copy in and one copy out. Sessions may be nested; only the
+     * outermost commit writes the meta back.
+     * <p>
+     * The {@link ItemStack} returned by {@link #getItemStack()} does not see the
+     * changes until they are committed.
+     *
+     * @see #editMeta(Consumer)
+     */
+    public EItemStack beginMeta() {
+        if (metaDepth == 0) {
+            // Read before the depth changes, while readMeta still returns the snapshot
+            pendingMeta = readMeta();
+            metaView = null;
+        }
+        metaDepth++;
+        return this;
+    }
+
+    /**
+     * Ends the meta edit session started by {@link #beginMeta()}.
+     * The working meta is written back when the outermost session ends.
+     *
+     * @throws IllegalStateException if no session is in progress
+     */
+    public EItemStack commitMeta() {
+        if (metaDepth == 0) {
+            throw new IllegalStateException("No meta edit session in progress");
+        }
+        if (--metaDepth == 0) {
+            ItemMeta meta = pendingMeta;
+            pendingMeta = null;
+            writeMeta(meta);
+        }
+        return this;
+    }
+
+    /**
+     * Runs the given editor inside a meta edit session.
+     * <p>
+     * The editor receives the working {@link ItemMeta}; fluent setters called on this
+     * object from within the editor use the same meta. The meta is written back once
+     * the editor returns, even if it throws.
+     * e.g. <code>stack.editMeta(meta -&gt; stack.setDisplayName("Foo").setLore("Bar"));</code>
+     *
+     * @param editor the editor to run
+     */
+    public EItemStack editMeta(Consumer<ItemMeta> editor) {
+        beginMeta();
+        try {
+            editor.accept(pendingMeta);
+        } finally {
+            // The editor may have changed the enchantments of the working meta directly
+            enchantmentLevels = null;
+            commitMeta();
+        }
+        return this;
+    }
+
+    /**
+     * Checks whether a meta edit session is in progress.
+     *
+     * @return true if inside {@link #beginMeta()}/{@link #commitMeta()}
+     */
+    public boolean isEditingMeta() {
+        return metaDepth > 0;
+    }
+
+    /**
+     * Gets the meta to read from. The returned meta is owned by this object and must not be changed.
+     */
+    ItemMeta readMeta() {
+        if (isEditingMeta()) {
+            return pendingMeta;
+        }
+        if (metaView == null) {
+            metaView = copyMeta();
+        }
+        return metaView;
+    }
+
+    private ItemMeta copyMeta() {
+        long start = EItemMetrics.start();
+        ItemMeta meta = handle().getItemMeta();
+        EItemMetrics.record(EItemMetrics.Operation.META_COPY, start);
+        return meta;
+    }
+
+    /**
+     * Gets the current meta without copying it, for use within this package.
+     *
+     * @return the meta snapshot, which must not be changed
+     */
+    ItemMeta peekMeta() {
+        return readMeta();
+    }
+
+    /**
+     * Gets the {@link ItemStack} being manipulated, without dropping any cache.
+     * All access to the stack goes through this method so that subclasses may create it on demand.
+     *
+     * @return the handle
+     */
+    ItemStack handle() {
+        return handle != null ? handle : share.stack;
+    }
+
+    /**
+     * Gets the {@link ItemStack} to change, first copying it if it is shared with clones.
+     * Every change to the stack goes through this method.
+     *
+     * @return the handle, owned by this object alone
+     */
+    ItemStack mutableHandle() {
+        ItemStack stack = handle();
+        if (share != null) {
+            if (handle == null) {
+                handle = stack.clone();
+                owned = true;
+            } else if (share.stack == handle) {
+                share.stack = handle.clone();
+            }
+            share = null;
+        }
+        return handle;
+    }
+
+    /**
+     * Sets the {@link ItemStack} of an object created without one
+     *
+     * @param handle the handle, not referenced by anything else
+     */
+    void initHandle(ItemStack handle) {
+        this.handle = handle;
+        this.owned = true;
+    }
+
+    /**
+     * Gets the meta to change. Outside a session, this is a fresh copy, so the snapshot already read is never changed.
+     */
+    private ItemMeta metaForWrite() {
+        if (isEditingMeta()) {
+            return pendingMeta;
+        }
+        mutableHandle();
+        return copyMeta();
+    }
+
+    private void writeMeta(ItemMeta itemMeta) {
+        if (isEditingMeta()) {
+            return;
+        }
+        invalidate();
+        if (mutableHandle().setItemMeta(itemMeta)) {
+            metaView = itemMeta;
+        }
+    }
+
+    private void invalidate() {
+        metaView = null;
+        enchantmentLevels = null;
+        fingerprinted = false;
+        registryIdRead = false;
+        uniqueIdRead = false;
+    }
+
+    /**
+     * Holds the source of unique ids, created on first use
+     */
+    private static final class UniqueIds {
+        private static final SecureRandom RANDOM = new SecureRandom();
+    }
+
+    /**
+     * An {@link ItemStack} shared by an object and its unchanged clones.
+     * The object which owns the stack moves the clones to a copy before changing it.
+     */
+    private static final class Share {
+
+        private ItemStack stack;
+
+        private Share(ItemStack stack) {
+            this.stack = stack;
+        }
+    }
+
+    /**
+     * Creates an immutable copy of the current state of this stack.
+     * <p>
+     * The copy may be read from any thread; its meta and fingerprint are computed up front.
+     * Its {@link #clone()} gives a mutable copy again.
+     *
+     * @return an immutable copy
+     */
+    public ImmutableEItemStack freeze() {
+        return new ImmutableEItemStack(this);
+    }
+
+    /**
+     * Creates a mutable object sharing the given stack copy-on-write.
+     * The stack is never changed through the returned object.
+     *
+     * @param stack       stack to share
+     * @param fingerprint the stack's fingerprint
+     * @return a new object sharing the stack
+     */
+    static EItemStack sharing(ItemStack stack, long fingerprint) {
+        EItemStack result = new EItemStack();
+        result.share = new Share(stack);
+        result.fingerprint = fingerprint;
+        result.fingerprinted = true;
+        return result;
     }
 
     /**
@@ -537,7 +1109,7 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      * @return true if this has a display name
      */
     public boolean hasDisplayName() {
-        return getItemMeta().hasDisplayName();
+        return readMeta().hasDisplayName();
     }
 
     /**
@@ -549,7 +1121,7 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      * @return the display name that is set
      */
     public String getDisplayName() {
-        return getItemMeta().getDisplayName();
+        return readMeta().getDisplayName();
     }
 
     /**
@@ -558,19 +1130,30 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      * @param name the name to set
      */
     public EItemStack setDisplayName(String name) {
-        ItemMeta itemMeta = getItemMeta();
+        ItemMeta itemMeta = metaForWrite();
         itemMeta.setDisplayName(name);
-        setItemMeta(itemMeta);
+        writeMeta(itemMeta);
         return this;
     }
 
+    /**
+     * Sets the display name formatted by {@link TextFormatCache#getDefault()}.
+     *
+     * @param template the name with <code>&amp;</code> color codes and <code>{index}</code> placeholders
+     * @param args     values of the placeholders
+     * @see TextFormatCache#format(String, Object...)
+     */
+    public EItemStack setFormattedDisplayName(String template, Object... args) {
+        return setDisplayName(TextFormatCache.getDefault().format(template, args));
+    }
+
     /**
      * Checks for existence of lore.
      *
      * @return true if this has lore
      */
     public boolean hasLore() {
-        return getItemMeta().hasLore();
+        return readMeta().hasLore();
     }
 
     /**
@@ -582,7 +1165,65 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      * @return a list of lore that is set
      */
     public List<String> getLore() {
-        return getItemMeta().getLore();
+        return readMeta().getLore();
+    }
+
+    /**
+     * Gets the id this item was stamped with by {@link EItemRegistry}.
+     * The id is read once and cached until the stack is changed through this object.
+     *
+     * @return the id, or null if this item has none
+     */
+    public String getRegistryId() {
+        if (isEditingMeta()) {
+            return HiddenTag.find(HiddenTag.REGISTRY, pendingMeta);
+        }
+        if (!registryIdRead) {
+            registryId = HiddenTag.find(HiddenTag.REGISTRY, readMeta());
+            registryIdRead = true;
+        }
+        return registryId;
+    }
+
+    /**
+     * Stamps a new random 64-bit id into this item, replacing any it has,
+     * so that {@link DuplicateDetector} can tell copies of the item from the original.
+     * <p>
+     * The id is kept in a hidden last lore line, so a stamped item no longer stacks with other items.
+     * Stamp each item after creating it; a stamped prototype passes its id on to every item created from it.
+     */
+    public EItemStack stampUniqueId() {
+        long id;
+        do {
+            id = UniqueIds.RANDOM.nextLong();
+        } while (id == 0);
+        return setLore(HiddenTag.with(HiddenTag.UNIQUE, Long.toHexString(id), getLore()));
+    }
+
+    /**
+     * Checks whether {@link #stampUniqueId()} stamped this item
+     *
+     * @return true if this item has a unique id
+     */
+    public boolean hasUniqueId() {
+        return getUniqueId() != 0;
+    }
+
+    /**
+     * Gets the id stamped by {@link #stampUniqueId()}.
+     * The id is read once and cached until the stack is changed through this object.
+     *
+     * @return the id, or 0 if this item has none
+     */
+    public long getUniqueId() {
+        if (isEditingMeta()) {
+            return HiddenTag.findUniqueId(pendingMeta);
+        }
+        if (!uniqueIdRead) {
+            uniqueId = HiddenTag.findUniqueId(readMeta());
+            uniqueIdRead = true;
+        }
+        return uniqueId;
     }
 
     /**
@@ -592,9 +1233,9 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      * @param lore the lore that will be set
      */
     public EItemStack setLore(List<String> lore) {
-        ItemMeta itemMeta = getItemMeta();
+        ItemMeta itemMeta = metaForWrite();
         itemMeta.setLore(lore);
-        setItemMeta(itemMeta);
+        writeMeta(itemMeta);
         return this;
     }
 
@@ -605,9 +1246,114 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      * @param lore the lore that will be set
      */
     public EItemStack setLore(String... lore) {
-        ItemMeta itemMeta = getItemMeta();
+        ItemMeta itemMeta = metaForWrite();
         itemMeta.setLore(Arrays.asList(lore));
-        setItemMeta(itemMeta);
+        writeMeta(itemMeta);
+        return this;
+    }
+
+    /**
+     * Sets the lore formatted by {@link TextFormatCache#getDefault()}.
+     *
+     * @param templates the lines with <code>&amp;</code> color codes and <code>{index}</code> placeholders
+     * @param args      values of the placeholders
+     * @see TextFormatCache#formatLore(List, Object...)
+     */
+    public EItemStack setFormattedLore(List<String> templates, Object... args) {
+        return setLore(TextFormatCache.getDefault().formatLore(templates, args));
+    }
+
+    /**
+     * Sets a line of the lore.
+     * Nothing is written back if the line is already the same.
+     *
+     * @param index index of the line
+     * @param line  the line that will be set
+     * @throws IndexOutOfBoundsException if there is no such line
+     */
+    public EItemStack setLoreLine(int index, String line) {
+        List<String> lore = currentLore();
+        if (Objects.equals(lore.get(index), line)) {
+            return this;
+        }
+        lore.set(index, line);
+        return writeLore(lore);
+    }
+
+    /**
+     * Inserts a line into the lore, shifting the following lines down.
+     *
+     * @param index index at which the line will be inserted
+     * @param line  the line that will be inserted
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public EItemStack insertLoreLine(int index, String line) {
+        List<String> lore = currentLore();
+        lore.add(index, line);
+        return writeLore(lore);
+    }
+
+    /**
+     * Appends a line to the lore.
+     *
+     * @param line the line that will be appended
+     */
+    public EItemStack addLoreLine(String line) {
+        List<String> lore = currentLore();
+        lore.add(line);
+        return writeLore(lore);
+    }
+
+    /**
+     * Removes a line of the lore, shifting the following lines up.
+     * Removes lore when the last line is removed.
+     *
+     * @param index index of the line
+     * @throws IndexOutOfBoundsException if there is no such line
+     */
+    public EItemStack removeLoreLine(int index) {
+        List<String> lore = currentLore();
+        lore.remove(index);
+        return writeLore(lore);
+    }
+
+    /**
+     * Replaces the first line of the lore which starts with the given key.
+     * Nothing is written back if there is no such line or it is already the same.
+     * e.g. <code>stack.replaceLoreLine("Cooldown: ", "Cooldown: 3s");</code>
+     *
+     * @param key  the start of the line to replace
+     * @param line the line that will be set
+     */
+    public EItemStack replaceLoreLine(String key, String line) {
+        ItemMeta meta = readMeta();
+        if (!meta.hasLore()) {
+            return this;
+        }
+        List<String> lore = meta.getLore();
+        for (int i = 0; i < lore.size(); i++) {
+            String current = lore.get(i);
+            if (current != null && current.startsWith(key)) {
+                if (current.equals(line)) {
+                    return this;
+                }
+                // getLore returns a copy, which can be changed and written back
+                lore.set(i, line);
+                return writeLore(lore);
+            }
+        }
+        return this;
+    }
+
+    private List<String> currentLore() {
+        ItemMeta meta = readMeta();
+        return meta.hasLore() ? new ArrayList<>(meta.getLore()) : new ArrayList<>();
+    }
+
+    private EItemStack writeLore(List<String> lore) {
+        ItemMeta itemMeta = metaForWrite();
+        itemMeta.setLore(lore.isEmpty() ? null : lore);
+        writeMeta(itemMeta);
         return this;
     }
 
@@ -619,7 +1365,7 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      * @return true if the enchantment conflicts, false otherwise
      */
     public boolean hasConflictingEnchant(Enchantment ench) {
-        return getItemMeta().hasConflictingEnchant(ench);
+        return readMeta().hasConflictingEnchant(ench);
     }
 
     /**
@@ -628,9 +1374,9 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      * @param itemFlags The hideflags which shouldn't be rendered
      */
     public EItemStack addItemFlags(ItemFlag... itemFlags) {
-        ItemMeta itemMeta = getItemMeta();
+        ItemMeta itemMeta = metaForWrite();
         itemMeta.addItemFlags(itemFlags);
-        setItemMeta(itemMeta);
+        writeMeta(itemMeta);
         return this;
     }
 
@@ -640,9 +1386,9 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      * @param itemFlags The hideflags which shouldn't be rendered
      */
     public EItemStack addItemFlags(List<ItemFlag> itemFlags) {
-        ItemMeta itemMeta = getItemMeta();
+        ItemMeta itemMeta = metaForWrite();
         itemMeta.addItemFlags(itemFlags.toArray(new ItemFlag[0]));
-        setItemMeta(itemMeta);
+        writeMeta(itemMeta);
         return this;
     }
 
@@ -652,9 +1398,9 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      * @param itemFlags Hideflags which should be removed
      */
     public EItemStack removeItemFlags(ItemFlag... itemFlags) {
-        ItemMeta itemMeta = getItemMeta();
+        ItemMeta itemMeta = metaForWrite();
         itemMeta.removeItemFlags(itemFlags);
-        setItemMeta(itemMeta);
+        writeMeta(itemMeta);
         return this;
     }
 
@@ -664,9 +1410,9 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      * @param itemFlags Hideflags which should be removed
      */
     public EItemStack removeItemFlags(List<ItemFlag> itemFlags) {
-        ItemMeta itemMeta = getItemMeta();
+        ItemMeta itemMeta = metaForWrite();
         itemMeta.removeItemFlags(itemFlags.toArray(new ItemFlag[0]));
-        setItemMeta(itemMeta);
+        writeMeta(itemMeta);
         return this;
     }
 
@@ -676,7 +1422,7 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      * @return A set of all itemFlags set
      */
     public Set<ItemFlag> getItemFlags() {
-        return getItemMeta().getItemFlags();
+        return readMeta().getItemFlags();
     }
 
     /**
@@ -686,7 +1432,7 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      * @return if it is present
      */
     public boolean hasItemFlag(ItemFlag flag) {
-        return getItemMeta().hasItemFlag(flag);
+        return readMeta().hasItemFlag(flag);
     }
 
     /**
@@ -695,7 +1441,7 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      * @return true if the unbreakable tag is true
      */
     public boolean isUnbreakable() {
-        return getItemMeta().spigot().isUnbreakable();
+        return readMeta().spigot().isUnbreakable();
     }
 
     /**
@@ -704,9 +1450,9 @@ public class EItemStack implements Cloneable, ConfigurationSerializable {
      * @param unbreakable true if set unbreakable
      */
     public EItemStack setUnbreakable(boolean unbreakable) {
-        ItemMeta itemMeta = getItemMeta();
+        ItemMeta itemMeta = metaForWrite();
         itemMeta.spigot().setUnbreakable(unbreakable);
-        setItemMeta(itemMeta);
+        writeMeta(itemMeta);
         return this;
     }
 }
@@ -0,0 +1,244 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.ItemFlag;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Applies the same meta operations to many stacks at once.<br>
+ * Stacks with the same type and meta are grouped, the operations run once per group,
+ * and each changed stack gets the resulting meta with a single copy.<br>
+ * e.g. <code>EItemStacks.apply(inventory, EItemStacks.addLore("Soulbound"), EItemStacks.addItemFlags(ItemFlag.HIDE_ENCHANTS));</code>
+ */
+public final class EItemStacks {
+
+    private EItemStacks() {
+    }
+
+    /**
+     * Applies the operations to every non-empty stack of the array
+     *
+     * @param stacks     stacks to change; null elements are skipped
+     * @param operations operations to run, in order, on the meta of each stack
+     * @return the number of stacks changed
+     */
+    @SafeVarargs
+    public static int apply(ItemStack[] stacks, Consumer<? super ItemMeta>... operations) {
+        return apply(stacks, Arrays.asList(operations));
+    }
+
+    /**
+     * Applies the operations to every non-empty stack of the array
+     *
+     * @param stacks     stacks to change; null elements are skipped
+     * @param operations operations to run, in order, on the meta of each stack
+     * @return the number of stacks changed
+     */
+    public static int apply(ItemStack[] stacks, List<? extends Consumer<? super ItemMeta>> operations) {
+        return applyTo(stacks, operations).cardinality();
+    }
+
+    /**
+     * Applies the operations to every non-empty slot of the inventory
+     *
+     * @param inventory  inventory to change
+     * @param operations operations to run, in order, on the meta of each stack
+     * @return the number of slots changed
+     */
+    @SafeVarargs
+    public static int apply(Inventory inventory, Consumer<? super ItemMeta>... operations) {
+        return apply(inventory, Arrays.asList(operations));
+    }
+
+    /**
+     * Applies the operations to every non-empty slot of the inventory.
+     * Only the changed slots are set back.
+     *
+     * @param inventory  inventory to change
+     * @param operations operations to run, in order, on the meta of each stack
+     * @return the number of slots changed
+     */
+    public static int apply(Inventory inventory, List<? extends Consumer<? super ItemMeta>> operations) {
+        ItemStack[] contents = inventory.getContents();
+        BitSet changed = applyTo(contents, operations);
+        for (int slot = changed.nextSetBit(0); slot >= 0; slot = changed.nextSetBit(slot + 1)) {
+            inventory.setItem(slot, contents[slot]);
+        }
+        return changed.cardinality();
+    }
+
+    /**
+     * Operation which sets the display name
+     *
+     * @param name the name to set
+     * @return the operation
+     */
+    public static Consumer<ItemMeta> setDisplayName(String name) {
+        return meta -> meta.setDisplayName(name);
+    }
+
+    /**
+     * Operation which sets the lore
+     *
+     * @param lore the lore to set
+     * @return the operation
+     */
+    public static Consumer<ItemMeta> setLore(String... lore) {
+        List<String> lines = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(lore)));
+        return meta -> meta.setLore(lines);
+    }
+
+    /**
+     * Operation which appends lines to the lore
+     *
+     * @param lines lines to append
+     * @return the operation
+     */
+    public static Consumer<ItemMeta> addLore(String... lines) {
+        List<String> added = Arrays.asList(lines.clone());
+        return meta -> {
+            List<String> lore = meta.hasLore() ? meta.getLore() : new ArrayList<>(added.size());
+            lore.addAll(added);
+            meta.setLore(lore);
+        };
+    }
+
+    /**
+     * Operation which adds item flags
+     *
+     * @param itemFlags flags to add
+     * @return the operation
+     */
+    public static Consumer<ItemMeta> addItemFlags(ItemFlag... itemFlags) {
+        ItemFlag[] flags = itemFlags.clone();
+        return meta -> meta.addItemFlags(flags);
+    }
+
+    /**
+     * Operation which removes item flags
+     *
+     * @param itemFlags flags to remove
+     * @return the operation
+     */
+    public static Consumer<ItemMeta> removeItemFlags(ItemFlag... itemFlags) {
+        ItemFlag[] flags = itemFlags.clone();
+        return meta -> meta.removeItemFlags(flags);
+    }
+
+    /**
+     * Operation which adds an enchantment, ignoring level restrictions
+     *
+     * @param ench  enchantment to add
+     * @param level level of the enchantment
+     * @return the operation
+     */
+    public static Consumer<ItemMeta> addUnsafeEnchantment(Enchantment ench, int level) {
+        return meta -> meta.addEnchant(ench, level, true);
+    }
+
+    /**
+     * Operation which removes an enchantment
+     *
+     * @param ench enchantment to remove
+     * @return the operation
+     */
+    public static Consumer<ItemMeta> removeEnchantment(Enchantment ench) {
+        return meta -> meta.removeEnchant(ench);
+    }
+
+    /**
+     * Operation which sets the unbreakable tag
+     *
+     * @param unbreakable true if set unbreakable
+     * @return the operation
+     */
+    public static Consumer<ItemMeta> setUnbreakable(boolean unbreakable) {
+        return meta -> meta.spigot().setUnbreakable(unbreakable);
+    }
+
+    private static BitSet applyTo(ItemStack[] stacks, List<? extends Consumer<? super ItemMeta>> operations) {
+        ItemFactory factory = Bukkit.getItemFactory();
+        Map<Long, List<Group>> groups = new HashMap<>();
+        BitSet changed = new BitSet(stacks.length);
+        for (int i = 0; i < stacks.length; i++) {
+            ItemStack stack = stacks[i];
+            if (stack == null || stack.getType() == Material.AIR) {
+                continue;
+            }
+            EItemStack wrapper = new EItemStack(stack);
+            ItemMeta meta = wrapper.peekMeta();
+            List<Group> candidates = groups.computeIfAbsent(wrapper.getSimilarityFingerprint(), key -> new ArrayList<>(1));
+            Group group = null;
+            for (Group candidate : candidates) {
+                if (candidate.type == stack.getType() && factory.equals(candidate.source, meta)) {
+                    group = candidate;
+                    break;
+                }
+            }
+            if (group == null) {
+                ItemMeta result = meta.clone();
+                for (Consumer<? super ItemMeta> operation : operations) {
+                    operation.accept(result);
+                }
+                group = new Group(stack.getType(), meta, factory.equals(result, meta) ? null : result);
+                candidates.add(group);
+            }
+            if (group.result != null && stack.setItemMeta(group.result)) {
+                changed.set(i);
+            }
+        }
+        return changed;
+    }
+
+    private static final class Group {
+
+        private final Material type;
+        private final ItemMeta source;
+        private final ItemMeta result;
+
+        private Group(Material type, ItemMeta source, ItemMeta result) {
+            this.type = type;
+            this.source = source;
+            this.result = result;
+        }
+    }
+}
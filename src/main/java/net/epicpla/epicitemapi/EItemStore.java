@@ -0,0 +1,666 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi;
+
+import org.bukkit.Material;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.CRC32;
+
+/**
+ * Stores items by owner and slot, for vaults, mailboxes and the like.
+ * <p>
+ * Items are kept encoded by {@link EItemCodec} in a memory-mapped data file which is only ever appended to:
+ * a change appends a record, and a removal appends a tombstone. Every record carries a CRC.
+ * The index of owners and slots is held in memory and checkpointed to a {@code .idx} file next to the data file
+ * by {@link #flush()} and {@link #close()}. On open, records appended after the last checkpoint are replayed,
+ * stopping at the first torn record, so a crash loses at most the records being written.
+ * <p>
+ * Items are read one at a time and returned as {@link LazyEItemStack}, so reads do not decode anything until the item is used.
+ * {@link #compact()} drops superseded records by writing the live ones to a new file which atomically replaces the old one.
+ * As Windows cannot replace a file which is mapped, the old mapping is released first, and iterations begun before
+ * the compaction then fail with {@link ConcurrentModificationException}. Releasing a mapping relies on JDK internals
+ * present in Java 8 and later; where they are missing, it is left to the garbage collector, and compaction may fail on Windows.
+ * A store holds at most 2 GiB. The data file grows in steps, so it may be larger on disk than the data it holds.
+ * <p>
+ * All methods are thread-safe.
+ */
+public final class EItemStore implements Closeable {
+
+    private static final int DATA_MAGIC = 0x45495344;
+    private static final int INDEX_MAGIC = 0x45495349;
+    private static final int RECORD_MARKER = 0x45495352;
+    private static final int FORMAT = 1;
+    private static final int DATA_HEADER = 16;
+    private static final int INDEX_HEADER = 28;
+    private static final int INDEX_ENTRY = 24;
+    private static final int RECORD_HEADER = 32;
+    private static final int TOMBSTONE = -1;
+    private static final int MIN_MAPPING = 1 << 20;
+
+    private final Path dataPath;
+    private final Path indexPath;
+    private final Map<UUID, TreeMap<Integer, Integer>> index = new HashMap<>();
+    private final CRC32 crc = new CRC32();
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long generation;
+    private int compactions;
+    private int end;
+    private int liveBytes;
+    private int count;
+    private boolean dirty;
+
+    private EItemStore(Path dataPath) throws IOException {
+        this.dataPath = dataPath.toAbsolutePath();
+        this.indexPath = this.dataPath.resolveSibling(this.dataPath.getFileName() + ".idx");
+        Files.deleteIfExists(tempPath(this.dataPath));
+        Files.deleteIfExists(tempPath(this.indexPath));
+        channel = FileChannel.open(this.dataPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Store is larger than 2 GiB: " + this.dataPath);
+            }
+            map((int) Math.max(size, MIN_MAPPING));
+            if (buffer.getInt(0) == 0) {
+                // New, or created by a process which died before writing anything
+                generation = ThreadLocalRandom.current().nextLong();
+                buffer.putInt(0, DATA_MAGIC).putInt(4, FORMAT).putLong(8, generation);
+                buffer.force();
+                end = DATA_HEADER;
+                Files.deleteIfExists(indexPath);
+            } else {
+                if (buffer.getInt(0) != DATA_MAGIC) {
+                    throw new IOException("Not an item store: " + this.dataPath);
+                }
+                if (buffer.getInt(4) != FORMAT) {
+                    throw new IOException("Unsupported store format " + buffer.getInt(4) + ": " + this.dataPath);
+                }
+                generation = buffer.getLong(8);
+                end = recover(loadIndex());
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the store in the given data file, creating it if it does not exist.
+     * The index is kept in the same directory, with {@code .idx} appended to the file name.
+     *
+     * @param dataPath path of the data file
+     * @return the opened store
+     * @throws IOException if the files cannot be opened or are not a store
+     */
+    public static EItemStore open(Path dataPath) throws IOException {
+        return new EItemStore(dataPath);
+    }
+
+    /**
+     * Gets the item in the given slot
+     *
+     * @param owner owner of the slot
+     * @param slot  slot to read
+     * @return the item, or null if the slot is empty
+     */
+    public synchronized EItemStack get(UUID owner, int slot) {
+        ensureOpen();
+        TreeMap<Integer, Integer> slots = index.get(owner);
+        Integer offset = slots == null ? null : slots.get(slot);
+        return offset == null ? null : new LazyEItemStack(readPayload(buffer, offset));
+    }
+
+    /**
+     * Puts an item into the given slot, replacing the one in it
+     *
+     * @param owner owner of the slot
+     * @param slot  slot to write
+     * @param stack item to put, or null or air to empty the slot
+     * @throws IOException if the data file cannot grow
+     */
+    public synchronized void put(UUID owner, int slot, EItemStack stack) throws IOException {
+        if (owner == null) {
+            throw new IllegalArgumentException("Owner cannot be null");
+        }
+        if (stack == null || stack.getType() == Material.AIR) {
+            remove(owner, slot);
+            return;
+        }
+        ensureOpen();
+        apply(owner, slot, append(owner, slot, EItemCodec.encode(stack)));
+    }
+
+    /**
+     * Empties the given slot
+     *
+     * @param owner owner of the slot
+     * @param slot  slot to empty
+     * @return true if the slot held an item
+     * @throws IOException if the data file cannot grow
+     */
+    public synchronized boolean remove(UUID owner, int slot) throws IOException {
+        ensureOpen();
+        TreeMap<Integer, Integer> slots = index.get(owner);
+        if (slots == null || !slots.containsKey(slot)) {
+            return false;
+        }
+        append(owner, slot, null);
+        apply(owner, slot, TOMBSTONE);
+        return true;
+    }
+
+    /**
+     * Empties every slot of the given owner
+     *
+     * @param owner owner of the slots
+     * @return the number of slots emptied
+     * @throws IOException if the data file cannot grow
+     */
+    public synchronized int removeAll(UUID owner) throws IOException {
+        int[] slots = getSlots(owner);
+        for (int slot : slots) {
+            remove(owner, slot);
+        }
+        return slots.length;
+    }
+
+    /**
+     * Gets the slots of the given owner which hold an item
+     *
+     * @param owner owner of the slots
+     * @return the slots in ascending order
+     */
+    public synchronized int[] getSlots(UUID owner) {
+        ensureOpen();
+        TreeMap<Integer, Integer> slots = index.get(owner);
+        if (slots == null) {
+            return new int[0];
+        }
+        int[] result = new int[slots.size()];
+        int i = 0;
+        for (int slot : slots.keySet()) {
+            result[i++] = slot;
+        }
+        return result;
+    }
+
+    /**
+     * Gets every owner which has at least one item
+     *
+     * @return a copy of the owners
+     */
+    public synchronized Set<UUID> getOwners() {
+        ensureOpen();
+        return new HashSet<>(index.keySet());
+    }
+
+    /**
+     * Gets the number of items in this store
+     *
+     * @return the item count
+     */
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Gets the bytes taken by records which have been superseded or removed, which {@link #compact()} would free
+     *
+     * @return the garbage bytes
+     */
+    public synchronized long getGarbageBytes() {
+        return end - DATA_HEADER - liveBytes;
+    }
+
+    /**
+     * Iterates over every item in file order.
+     * The iteration sees the items present when {@link Iterable#iterator()} is called, and each item is read as it is reached.
+     * It fails with {@link ConcurrentModificationException} if the store is compacted meanwhile.
+     *
+     * @return the entries
+     */
+    public Iterable<Entry> entries() {
+        return () -> {
+            synchronized (this) {
+                ensureOpen();
+                int[] offsets = new int[count];
+                int i = 0;
+                for (TreeMap<Integer, Integer> slots : index.values()) {
+                    for (int offset : slots.values()) {
+                        offsets[i++] = offset;
+                    }
+                }
+                Arrays.sort(offsets);
+                return new EntryIterator(this, offsets);
+            }
+        };
+    }
+
+    /**
+     * Iterates over the items of the given owner in slot order.
+     * The iteration sees the items present when {@link Iterable#iterator()} is called, and each item is read as it is reached.
+     * It fails with {@link ConcurrentModificationException} if the store is compacted meanwhile.
+     *
+     * @param owner owner of the items
+     * @return the entries
+     */
+    public Iterable<Entry> entries(UUID owner) {
+        return () -> {
+            synchronized (this) {
+                ensureOpen();
+                TreeMap<Integer, Integer> slots = index.get(owner);
+                int[] offsets = new int[slots == null ? 0 : slots.size()];
+                if (slots != null) {
+                    int i = 0;
+                    for (int offset : slots.values()) {
+                        offsets[i++] = offset;
+                    }
+                }
+                return new EntryIterator(this, offsets);
+            }
+        };
+    }
+
+    /**
+     * Rewrites the data file with only the live records.
+     * The new file is written and synced beside the old one, then moved over it atomically,
+     * so a crash at any point leaves either the old or the new store.
+     * The old file is unmapped and closed before the move; if the move fails, it is opened again and the store is unchanged.
+     *
+     * @throws IOException if the new file cannot be written or moved
+     */
+    public synchronized void compact() throws IOException {
+        ensureOpen();
+        int[] offsets = new int[count];
+        int i = 0;
+        for (TreeMap<Integer, Integer> slots : index.values()) {
+            for (int offset : slots.values()) {
+                offsets[i++] = offset;
+            }
+        }
+        Arrays.sort(offsets);
+
+        long newGeneration = ThreadLocalRandom.current().nextLong();
+        Path temp = tempPath(dataPath);
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(DATA_HEADER);
+            header.putInt(DATA_MAGIC).putInt(FORMAT).putLong(newGeneration).flip();
+            writeFully(out, header);
+            for (int offset : offsets) {
+                ByteBuffer record = buffer.duplicate();
+                record.limit(offset + recordSize(offset)).position(offset);
+                writeFully(out, record);
+            }
+            out.force(true);
+        }
+
+        compactions++;
+        MappedFiles.unmap(buffer);
+        buffer = null;
+        channel.close();
+        channel = null;
+        try {
+            Files.move(temp, dataPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            channel = FileChannel.open(dataPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            map((int) Math.max(channel.size(), MIN_MAPPING));
+            throw e;
+        }
+        channel = FileChannel.open(dataPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        map((int) Math.max(channel.size(), MIN_MAPPING));
+        generation = newGeneration;
+        index.clear();
+        liveBytes = 0;
+        count = 0;
+        end = recover(DATA_HEADER);
+        writeIndex();
+    }
+
+    /**
+     * Syncs the data file and checkpoints the index, so that the next open does not replay the records appended so far
+     *
+     * @throws IOException if the index cannot be written
+     */
+    public synchronized void flush() throws IOException {
+        ensureOpen();
+        if (dirty) {
+            buffer.force();
+            writeIndex();
+        }
+    }
+
+    /**
+     * Flushes and closes this store. Iterations in progress may still be finished.
+     *
+     * @throws IOException if the index cannot be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            // The mapping is kept for iterations in progress and released by the garbage collector
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void ensureOpen() {
+        if (channel == null) {
+            throw new IllegalStateException("Store is closed");
+        }
+    }
+
+    private void checkCompactions(int expected) {
+        if (compactions != expected) {
+            throw new ConcurrentModificationException("Store was compacted during the iteration");
+        }
+    }
+
+    private void map(int capacity) throws IOException {
+        MappedByteBuffer old = buffer;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        if (old != null) {
+            MappedFiles.unmap(old);
+        }
+    }
+
+    private int append(UUID owner, int slot, byte[] payload) throws IOException {
+        int length = payload == null ? TOMBSTONE : payload.length;
+        long next = (long) end + RECORD_HEADER + Math.max(length, 0);
+        if (next > Integer.MAX_VALUE) {
+            throw new IOException("Store would exceed 2 GiB: " + dataPath);
+        }
+        if (next > buffer.capacity()) {
+            map((int) Math.min(Math.max((long) buffer.capacity() << 1, next), Integer.MAX_VALUE));
+        }
+        int offset = end;
+        buffer.putInt(offset + 4, length)
+                .putLong(offset + 12, owner.getMostSignificantBits())
+                .putLong(offset + 20, owner.getLeastSignificantBits())
+                .putInt(offset + 28, slot);
+        if (payload != null) {
+            ByteBuffer target = buffer.duplicate();
+            target.position(offset + RECORD_HEADER);
+            target.put(payload);
+        }
+        buffer.putInt(offset + 8, checksum(offset, length));
+        buffer.putInt(offset, RECORD_MARKER);
+        end = (int) next;
+        dirty = true;
+        return offset;
+    }
+
+    private void apply(UUID owner, int slot, int offset) {
+        TreeMap<Integer, Integer> slots = index.get(owner);
+        Integer previous;
+        if (offset == TOMBSTONE) {
+            previous = slots == null ? null : slots.remove(slot);
+            if (slots != null && slots.isEmpty()) {
+                index.remove(owner);
+            }
+        } else {
+            if (slots == null) {
+                index.put(owner, slots = new TreeMap<>());
+            }
+            previous = slots.put(slot, offset);
+            liveBytes += recordSize(offset);
+            count++;
+        }
+        if (previous != null) {
+            liveBytes -= recordSize(previous);
+            count--;
+        }
+    }
+
+    /**
+     * Replays the records from the given offset, stopping at the first one which is missing or torn
+     *
+     * @return the end of the last good record
+     */
+    private int recover(int position) {
+        while (position + RECORD_HEADER <= buffer.capacity() && buffer.getInt(position) == RECORD_MARKER) {
+            int length = buffer.getInt(position + 4);
+            if (length < TOMBSTONE || (long) position + RECORD_HEADER + Math.max(length, 0) > buffer.capacity()
+                    || checksum(position, length) != buffer.getInt(position + 8)) {
+                break;
+            }
+            UUID owner = new UUID(buffer.getLong(position + 12), buffer.getLong(position + 20));
+            apply(owner, buffer.getInt(position + 28), length == TOMBSTONE ? TOMBSTONE : position);
+            position += RECORD_HEADER + Math.max(length, 0);
+            dirty = true;
+        }
+        if (position + 4 <= buffer.capacity()) {
+            // Keep a torn record from being mistaken for a good one once appends overwrite part of it
+            buffer.putInt(position, 0);
+        }
+        return position;
+    }
+
+    /**
+     * Loads the index checkpoint if it matches the data file
+     *
+     * @return the offset up to which the index covers the data file
+     */
+    private int loadIndex() throws IOException {
+        if (!Files.exists(indexPath)) {
+            return DATA_HEADER;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(indexPath));
+        int length = bytes.capacity();
+        if (length < INDEX_HEADER + 4) {
+            return DATA_HEADER;
+        }
+        crc.reset();
+        crc.update(bytes.array(), 0, length - 4);
+        if ((int) crc.getValue() != bytes.getInt(length - 4)
+                || bytes.getInt() != INDEX_MAGIC || bytes.getInt() != FORMAT || bytes.getLong() != generation) {
+            return DATA_HEADER;
+        }
+        int covered = bytes.getInt();
+        int live = bytes.getInt();
+        int entries = bytes.getInt();
+        if (length != INDEX_HEADER + entries * INDEX_ENTRY + 4 || covered > buffer.capacity()) {
+            return DATA_HEADER;
+        }
+        for (int i = 0; i < entries; i++) {
+            UUID owner = new UUID(bytes.getLong(), bytes.getLong());
+            int slot = bytes.getInt();
+            int offset = bytes.getInt();
+            TreeMap<Integer, Integer> slots = index.get(owner);
+            if (slots == null) {
+                index.put(owner, slots = new TreeMap<>());
+            }
+            slots.put(slot, offset);
+        }
+        liveBytes = live;
+        count = entries;
+        return covered;
+    }
+
+    private void writeIndex() throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(INDEX_HEADER + count * INDEX_ENTRY + 4);
+        bytes.putInt(INDEX_MAGIC).putInt(FORMAT).putLong(generation).putInt(end).putInt(liveBytes).putInt(count);
+        for (Map.Entry<UUID, TreeMap<Integer, Integer>> entry : index.entrySet()) {
+            UUID owner = entry.getKey();
+            for (Map.Entry<Integer, Integer> slot : entry.getValue().entrySet()) {
+                bytes.putLong(owner.getMostSignificantBits()).putLong(owner.getLeastSignificantBits())
+                        .putInt(slot.getKey()).putInt(slot.getValue());
+            }
+        }
+        crc.reset();
+        crc.update(bytes.array(), 0, bytes.position());
+        bytes.putInt((int) crc.getValue()).flip();
+
+        Path temp = tempPath(indexPath);
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(out, bytes);
+            out.force(true);
+        }
+        try {
+            Files.move(temp, indexPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        dirty = false;
+    }
+
+    private int checksum(int offset, int length) {
+        ByteBuffer bytes = buffer.duplicate();
+        crc.reset();
+        bytes.limit(offset + 8).position(offset + 4);
+        crc.update(bytes);
+        bytes.limit(offset + RECORD_HEADER + Math.max(length, 0)).position(offset + 12);
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    private int recordSize(int offset) {
+        return RECORD_HEADER + Math.max(buffer.getInt(offset + 4), 0);
+    }
+
+    private static byte[] readPayload(ByteBuffer buffer, int offset) {
+        ByteBuffer source = buffer.duplicate();
+        byte[] payload = new byte[source.getInt(offset + 4)];
+        source.position(offset + RECORD_HEADER);
+        source.get(payload);
+        return payload;
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Path tempPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".tmp");
+    }
+
+    /**
+     * An item of the store, read when it is reached by iteration
+     */
+    public static final class Entry {
+
+        private final UUID owner;
+        private final int slot;
+        private final EItemStore store;
+        private final int compactions;
+        private final int offset;
+
+        private Entry(EItemStore store, int compactions, int offset) {
+            ByteBuffer buffer = store.buffer;
+            this.owner = new UUID(buffer.getLong(offset + 12), buffer.getLong(offset + 20));
+            this.slot = buffer.getInt(offset + 28);
+            this.store = store;
+            this.compactions = compactions;
+            this.offset = offset;
+        }
+
+        /**
+         * @return the owner of the item
+         */
+        public UUID getOwner() {
+            return owner;
+        }
+
+        /**
+         * @return the slot the item is in
+         */
+        public int getSlot() {
+            return slot;
+        }
+
+        /**
+         * Gets the item, which is decoded when it is first used
+         *
+         * @return the item
+         * @throws ConcurrentModificationException if the store has been compacted since the iteration began
+         */
+        public EItemStack getItem() {
+            synchronized (store) {
+                store.checkCompactions(compactions);
+                return new LazyEItemStack(readPayload(store.buffer, offset));
+            }
+        }
+    }
+
+    private static final class EntryIterator implements Iterator<Entry> {
+
+        private final EItemStore store;
+        private final int compactions;
+        private final int[] offsets;
+        private int next;
+
+        private EntryIterator(EItemStore store, int[] offsets) {
+            this.store = store;
+            this.compactions = store.compactions;
+            this.offsets = offsets;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < offsets.length;
+        }
+
+        @Override
+        public Entry next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            synchronized (store) {
+                store.checkCompactions(compactions);
+                return new Entry(store, compactions, offsets[next++]);
+            }
+        }
+    }
+}
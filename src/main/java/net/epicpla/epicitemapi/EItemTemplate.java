@@ -0,0 +1,192 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable prototype of an item, built once from an {@link EItemStack}.<br>
+ * Creating an item from a template costs a single {@link ItemStack} copy instead of a full setter chain.<br>
+ * The display name and lore may contain <code>{key}</code> placeholders which are replaced by {@link #create(int, Map)}.<br>
+ * e.g. <code>new EItemTemplate(new EItemStack(Material.PAPER).setDisplayName("{player}'s ticket")).create(1, values);</code>
+ */
+public final class EItemTemplate {
+
+    private final Material type;
+    private final short durability;
+    private final int amount;
+    private final ItemMeta meta;
+    private final ItemStack prototype;
+    private final TextTemplate displayName;
+    private final TextTemplate[] lore;
+    private final boolean placeholders;
+
+    /**
+     * Freezes the current state of the given stack.
+     * Later changes to the stack do not affect this template.
+     *
+     * @param stack the stack to copy
+     */
+    public EItemTemplate(final EItemStack stack) {
+        type = stack.getType();
+        durability = stack.getDurability();
+        amount = stack.getAmount();
+        meta = stack.getItemMeta();
+        prototype = new ItemStack(type, amount, durability);
+        if (meta != null) {
+            prototype.setItemMeta(meta);
+        }
+
+        boolean placeholders = false;
+        if (meta != null && meta.hasDisplayName()) {
+            displayName = TextTemplate.compile(meta.getDisplayName());
+            placeholders = displayName.hasPlaceholders();
+        } else {
+            displayName = null;
+        }
+        if (meta != null && meta.hasLore()) {
+            List<String> lines = meta.getLore();
+            lore = new TextTemplate[lines.size()];
+            for (int i = 0; i < lore.length; i++) {
+                lore[i] = TextTemplate.compile(lines.get(i));
+                placeholders |= lore[i].hasPlaceholders();
+            }
+        } else {
+            lore = null;
+        }
+        this.placeholders = placeholders;
+    }
+
+    /**
+     * Gets the type of the items created by this template
+     *
+     * @return Type of the items
+     */
+    public Material getType() {
+        return type;
+    }
+
+    /**
+     * Gets the durability of the items created by this template
+     *
+     * @return Durability of the items
+     */
+    public short getDurability() {
+        return durability;
+    }
+
+    /**
+     * Gets the default amount of the items created by this template
+     *
+     * @return Default amount of the items
+     */
+    public int getAmount() {
+        return amount;
+    }
+
+    /**
+     * Gets the meta of the items created by this template, for use within this package
+     *
+     * @return the meta, which must not be changed, or null if the items have none
+     */
+    ItemMeta getMeta() {
+        return meta;
+    }
+
+    /**
+     * Checks whether the display name or lore has any <code>{key}</code> placeholder.
+     *
+     * @return true if there is at least one placeholder
+     */
+    public boolean hasPlaceholders() {
+        return placeholders;
+    }
+
+    /**
+     * Creates a new item with the default amount
+     *
+     * @return a new item
+     */
+    public EItemStack create() {
+        return new EItemStack(prototype.clone(), null);
+    }
+
+    /**
+     * Creates a new item with the given amount
+     *
+     * @param amount stack size
+     * @return a new item
+     */
+    public EItemStack create(int amount) {
+        ItemStack stack = prototype.clone();
+        stack.setAmount(amount);
+        return new EItemStack(stack, null);
+    }
+
+    /**
+     * Creates a new item with the default amount, replacing the placeholders in the display name and lore.
+     *
+     * @param values values by placeholder key; placeholders without a value are left as they are
+     * @return a new item
+     */
+    public EItemStack create(Map<String, ?> values) {
+        return create(amount, values);
+    }
+
+    /**
+     * Creates a new item with the given amount, replacing the placeholders in the display name and lore.
+     * Only the lines which have placeholders are rebuilt.
+     *
+     * @param amount stack size
+     * @param values values by placeholder key; placeholders without a value are left as they are
+     * @return a new item
+     */
+    public EItemStack create(int amount, Map<String, ?> values) {
+        if (!placeholders) {
+            return create(amount);
+        }
+        ItemMeta itemMeta = meta.clone();
+        if (displayName != null && displayName.hasPlaceholders()) {
+            itemMeta.setDisplayName(displayName.apply(values::get));
+        }
+        if (lore != null) {
+            List<String> lines = new ArrayList<>(lore.length);
+            for (TextTemplate line : lore) {
+                lines.add(line.apply(values::get));
+            }
+            itemMeta.setLore(lines);
+        }
+        ItemStack stack = new ItemStack(type, amount, durability);
+        stack.setItemMeta(itemMeta);
+        return new EItemStack(stack, itemMeta);
+    }
+}
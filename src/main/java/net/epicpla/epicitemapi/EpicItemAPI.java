@@ -24,11 +24,82 @@
 
 package net.epicpla.epicitemapi;
 
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import javax.management.JMException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
 /**
  * Allows this API to be loaded as a JavaPlugin
  */
 public class EpicItemAPI extends JavaPlugin {
 
+    private static final long PIPELINE_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    private EItemPipeline pipeline;
+
+    @Override
+    public void onEnable() {
+        EItemResolver.init();
+        pipeline = new EItemPipeline(this, Math.max(1, Runtime.getRuntime().availableProcessors() / 2), PIPELINE_BUDGET_NANOS);
+        try {
+            EItemMetrics.register();
+        } catch (JMException e) {
+            getLogger().log(Level.WARNING, "Could not register the metrics MBean", e);
+        }
+    }
+
+    @Override
+    public void onDisable() {
+        if (pipeline != null) {
+            pipeline.shutdown();
+            pipeline = null;
+        }
+        try {
+            EItemMetrics.unregister();
+        } catch (JMException e) {
+            getLogger().log(Level.WARNING, "Could not unregister the metrics MBean", e);
+        }
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (args.length == 0 || !args[0].equalsIgnoreCase("metrics") || args.length > 2) {
+            return false;
+        }
+        if (!EItemMetrics.ENABLED) {
+            sender.sendMessage(ChatColor.RED + "Metrics are off. Start the server with -D" + EItemMetrics.PROPERTY + "=true to turn them on.");
+            return true;
+        }
+        if (args.length == 2) {
+            if (!args[1].equalsIgnoreCase("reset")) {
+                return false;
+            }
+            EItemMetrics.reset();
+            sender.sendMessage(ChatColor.GREEN + "Metrics cleared.");
+            return true;
+        }
+        List<String> report = EItemMetrics.report();
+        if (report.isEmpty()) {
+            sender.sendMessage(ChatColor.GRAY + "Nothing recorded yet.");
+        }
+        for (String line : report) {
+            sender.sendMessage(line);
+        }
+        return true;
+    }
+
+    /**
+     * Gets the pipeline which builds items off the main thread while this plugin is enabled
+     *
+     * @return the pipeline, or null if this plugin is not enabled
+     */
+    public EItemPipeline getPipeline() {
+        return pipeline;
+    }
 }
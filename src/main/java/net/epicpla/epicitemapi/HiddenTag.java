@@ -0,0 +1,152 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi;
+
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hides short values in lore lines, as the server has no other place to keep custom data on an item.<br>
+ * Each character of a tag line follows a {@code §}, and the client draws a {@code §} and the character after it as nothing,
+ * so the line shows up empty. A tag line starts with {@code §%§#} and a character naming its kind,
+ * which no formatting code uses, so ordinary lore is never taken for a tag.
+ */
+final class HiddenTag {
+
+    /**
+     * The kind of the id stamped by {@link EItemRegistry}
+     */
+    static final char REGISTRY = 'r';
+
+    /**
+     * The kind of the id stamped by {@link EItemStack#stampUniqueId()}, in hexadecimal
+     */
+    static final char UNIQUE = 'u';
+
+    private static final String HEADER = "§%§#";
+
+    private HiddenTag() {
+    }
+
+    /**
+     * Encodes the given value into a tag line of the given kind
+     */
+    static String encode(char kind, String value) {
+        StringBuilder line = new StringBuilder(HEADER.length() + 2 + value.length() * 2).append(HEADER).append('§').append(kind);
+        for (int i = 0; i < value.length(); i++) {
+            line.append('§').append(value.charAt(i));
+        }
+        return line.toString();
+    }
+
+    /**
+     * Decodes the value of a tag line of the given kind
+     *
+     * @return the value, or null if the line is null or not a tag line of the kind
+     */
+    static String decode(char kind, String line) {
+        if (line == null) {
+            return null;
+        }
+        int length = line.length();
+        if ((length & 1) != 0 || length < HEADER.length() + 2 || !line.startsWith(HEADER)
+                || line.charAt(HEADER.length()) != '§' || line.charAt(HEADER.length() + 1) != kind) {
+            return null;
+        }
+        char[] value = new char[(length - HEADER.length() - 2) / 2];
+        for (int i = HEADER.length() + 2, j = 0; i < length; i += 2, j++) {
+            if (line.charAt(i) != '§') {
+                return null;
+            }
+            value[j] = line.charAt(i + 1);
+        }
+        return new String(value);
+    }
+
+    /**
+     * Finds the value of the last tag line of the given kind
+     *
+     * @return the value, or null if the meta has none
+     */
+    static String find(char kind, ItemMeta meta) {
+        return meta == null || !meta.hasLore() ? null : find(kind, meta.getLore());
+    }
+
+    /**
+     * Finds the value of the last tag line of the given kind
+     *
+     * @return the value, or null if the lore has none
+     */
+    static String find(char kind, List<String> lore) {
+        for (int i = lore.size() - 1; i >= 0; i--) {
+            String value = decode(kind, lore.get(i));
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the id stamped by {@link EItemStack#stampUniqueId()}
+     *
+     * @return the id, or 0 if the meta has none
+     */
+    static long findUniqueId(ItemMeta meta) {
+        String value = find(UNIQUE, meta);
+        if (value == null) {
+            return 0L;
+        }
+        try {
+            return Long.parseUnsignedLong(value, 16);
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    /**
+     * Gets a copy of the given lore with the tag of the given kind set to the value, replacing any such tag
+     *
+     * @param lore  lore to copy, which may be null
+     * @param value value to set, or null to remove the tag
+     */
+    static List<String> with(char kind, String value, List<String> lore) {
+        List<String> result = new ArrayList<>(lore == null ? 1 : lore.size() + 1);
+        if (lore != null) {
+            for (String line : lore) {
+                if (decode(kind, line) == null) {
+                    result.add(line);
+                }
+            }
+        }
+        if (value != null) {
+            result.add(encode(kind, value));
+        }
+        return result;
+    }
+}
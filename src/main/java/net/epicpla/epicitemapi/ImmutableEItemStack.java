@@ -0,0 +1,157 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi;
+
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.material.MaterialData;
+
+/**
+ * A frozen {@link EItemStack}, created by {@link EItemStack#freeze()}.<br>
+ * It holds a private copy of the stack, its meta, fingerprint and hash code in final fields,
+ * so it may be cached and read from any thread without locking.
+ * Every method which would change it throws {@link UnsupportedOperationException},
+ * and its meta and {@link MaterialData} are only ever handed out as copies, including in {@link #serialize()}.
+ * <p>
+ * {@link #clone()} returns a mutable {@link EItemStack} which shares the frozen stack until it is changed.
+ */
+public final class ImmutableEItemStack extends EItemStack {
+
+    private final ItemStack stack;
+    private final ItemMeta meta;
+    private final long fingerprint;
+    private final int[] enchantmentLevels;
+    private final int hash;
+    private final String registryId;
+    private final long uniqueId;
+
+    ImmutableEItemStack(final EItemStack source) {
+        ItemMeta meta = source.getItemMeta();
+        ItemStack stack = new ItemStack(source.getType(), source.getAmount(), source.getDurability());
+        if (meta != null) {
+            stack.setItemMeta(meta);
+        }
+        this.stack = stack;
+        this.meta = meta;
+        this.fingerprint = computeFingerprint(meta);
+        this.enchantmentLevels = super.enchantmentLevels();
+        this.hash = (int) (fingerprint ^ (fingerprint >>> 32)) * 31 + stack.getAmount();
+        this.registryId = HiddenTag.find(HiddenTag.REGISTRY, meta);
+        this.uniqueId = HiddenTag.findUniqueId(meta);
+    }
+
+    @Override
+    ItemStack handle() {
+        return stack;
+    }
+
+    @Override
+    ItemStack mutableHandle() {
+        throw new UnsupportedOperationException("A frozen stack cannot be changed");
+    }
+
+    @Override
+    ItemMeta readMeta() {
+        return meta;
+    }
+
+    @Override
+    int[] enchantmentLevels() {
+        return enchantmentLevels;
+    }
+
+    /**
+     * Gets a copy of the frozen {@link ItemStack}, as the frozen one cannot be handed out
+     *
+     * @return a copy of the stack
+     */
+    @Override
+    public ItemStack getItemStack() {
+        return stack.clone();
+    }
+
+    /**
+     * Gets a copy of the frozen stack's MaterialData
+     *
+     * @return a copy of the MaterialData
+     */
+    @Override
+    public MaterialData getData() {
+        MaterialData data = stack.getData();
+        return data == null ? null : data.clone();
+    }
+
+    @Override
+    public EItemStack refresh() {
+        return this;
+    }
+
+    @Override
+    public ItemMeta getItemMeta() {
+        return meta == null ? null : meta.clone();
+    }
+
+    @Override
+    public EItemStack beginMeta() {
+        throw new UnsupportedOperationException("A frozen stack cannot be changed");
+    }
+
+    @Override
+    public long getSimilarityFingerprint() {
+        return fingerprint;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String getRegistryId() {
+        return registryId;
+    }
+
+    @Override
+    public long getUniqueId() {
+        return uniqueId;
+    }
+
+    /**
+     * Gives a mutable copy of this stack.
+     * The copy shares the frozen stack and copies it on its first change.
+     *
+     * @return a mutable copy
+     */
+    @Override
+    public EItemStack clone() {
+        return sharing(stack, fingerprint);
+    }
+
+    @Override
+    public ImmutableEItemStack freeze() {
+        return this;
+    }
+}
@@ -0,0 +1,495 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi;
+
+import org.bukkit.Material;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemFlag;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * A compiled set of conditions on items, for answering inventory queries in one pass.<br>
+ * e.g. <code>ItemMatcher.builder().setTypes(Material.DIAMOND_SWORD).addEnchantment(Enchantment.DAMAGE_ALL, 4).build().count(inventory) &gt;= 3</code>
+ * <p>
+ * The cheap conditions on the type, amount and durability are tested first.
+ * The meta is only read when those pass and a meta condition exists, and then only once per item.
+ * Matchers are immutable and may be shared between threads.
+ */
+public final class ItemMatcher implements Predicate<ItemStack> {
+
+    private final BitSet types;
+    private final int minAmount;
+    private final int maxAmount;
+    private final int minDurability;
+    private final int maxDurability;
+    private final String displayName;
+    private final String[] loreLines;
+    private final String[] lorePrefixes;
+    private final Enchantment[] enchantments;
+    private final int[] minLevels;
+    private final Set<ItemFlag> itemFlags;
+    private final Boolean unbreakable;
+    private final String registryId;
+    private final List<Predicate<? super ItemMeta>> metaConditions;
+    private final boolean needsMeta;
+    private final boolean needsLore;
+
+    private ItemMatcher(Builder builder) {
+        types = builder.types == null ? null : (BitSet) builder.types.clone();
+        minAmount = builder.minAmount;
+        maxAmount = builder.maxAmount;
+        minDurability = builder.minDurability;
+        maxDurability = builder.maxDurability;
+        displayName = builder.displayName;
+        loreLines = builder.loreLines.toArray(new String[0]);
+        lorePrefixes = builder.lorePrefixes.toArray(new String[0]);
+        enchantments = builder.enchantments.toArray(new Enchantment[0]);
+        minLevels = new int[enchantments.length];
+        for (int i = 0; i < minLevels.length; i++) {
+            minLevels[i] = builder.minLevels.get(i);
+        }
+        itemFlags = builder.itemFlags.isEmpty() ? Collections.<ItemFlag>emptySet() : EnumSet.copyOf(builder.itemFlags);
+        unbreakable = builder.unbreakable;
+        registryId = builder.registryId;
+        metaConditions = Collections.unmodifiableList(new ArrayList<>(builder.metaConditions));
+        needsLore = loreLines.length > 0 || lorePrefixes.length > 0;
+        needsMeta = needsLore || displayName != null || enchantments.length > 0 || !itemFlags.isEmpty()
+                || unbreakable != null || registryId != null || !metaConditions.isEmpty();
+    }
+
+    /**
+     * Starts a matcher which matches every item but air
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Tests the given item
+     *
+     * @param stack item to test
+     * @return true if the item is not empty and meets every condition
+     */
+    @Override
+    public boolean test(ItemStack stack) {
+        if (stack == null || !testCheap(stack.getType(), stack.getAmount(), stack.getDurability())) {
+            return false;
+        }
+        return !needsMeta || testMeta(stack.hasItemMeta() ? stack.getItemMeta() : null, null);
+    }
+
+    /**
+     * Tests the given item, reading the meta it has cached instead of copying it
+     *
+     * @param stack item to test
+     * @return true if the item is not empty and meets every condition
+     */
+    public boolean test(EItemStack stack) {
+        if (stack == null || !testCheap(stack.getType(), stack.getAmount(), stack.getDurability())) {
+            return false;
+        }
+        return !needsMeta || testMeta(stack.peekMeta(), stack);
+    }
+
+    /**
+     * Counts the matching items in the storage slots of the inventory
+     *
+     * @param inventory inventory to search
+     * @return the total amount of the matching items
+     */
+    public int count(Inventory inventory) {
+        return count(inventory.getStorageContents());
+    }
+
+    /**
+     * Counts the matching items
+     *
+     * @param contents items to search
+     * @return the total amount of the matching items
+     */
+    public int count(ItemStack[] contents) {
+        int count = 0;
+        for (ItemStack stack : contents) {
+            if (test(stack)) {
+                count += stack.getAmount();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds the first matching item in the storage slots of the inventory
+     *
+     * @param inventory inventory to search
+     * @return the slot, or -1 if no item matches
+     */
+    public int find(Inventory inventory) {
+        return find(inventory.getStorageContents());
+    }
+
+    /**
+     * Finds the first matching item
+     *
+     * @param contents items to search
+     * @return the index, or -1 if no item matches
+     */
+    public int find(ItemStack[] contents) {
+        for (int i = 0; i < contents.length; i++) {
+            if (test(contents[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds every matching item in the storage slots of the inventory
+     *
+     * @param inventory inventory to search
+     * @return the slots in ascending order
+     */
+    public int[] findAll(Inventory inventory) {
+        return findAll(inventory.getStorageContents());
+    }
+
+    /**
+     * Finds every matching item
+     *
+     * @param contents items to search
+     * @return the indexes in ascending order
+     */
+    public int[] findAll(ItemStack[] contents) {
+        int[] found = new int[contents.length];
+        int count = 0;
+        for (int i = 0; i < contents.length; i++) {
+            if (test(contents[i])) {
+                found[count++] = i;
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Removes up to the given amount of matching items from the storage slots of the inventory,
+     * taking from the earliest slots first. Only the changed slots are set back.
+     *
+     * @param inventory inventory to remove from
+     * @param amount    the most items to remove
+     * @return the amount removed
+     */
+    public int removeMatching(Inventory inventory, int amount) {
+        ItemStack[] contents = inventory.getStorageContents();
+        int removed = 0;
+        for (int slot = 0; slot < contents.length && removed < amount; slot++) {
+            ItemStack stack = contents[slot];
+            if (!test(stack)) {
+                continue;
+            }
+            int taken = Math.min(stack.getAmount(), amount - removed);
+            removed += taken;
+            if (taken == stack.getAmount()) {
+                inventory.setItem(slot, null);
+            } else {
+                stack.setAmount(stack.getAmount() - taken);
+                inventory.setItem(slot, stack);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes up to the given amount of matching items, taking from the earliest indexes first
+     *
+     * @param contents items to remove from, changed in place
+     * @param amount   the most items to remove
+     * @return the amount removed
+     */
+    public int removeMatching(ItemStack[] contents, int amount) {
+        int removed = 0;
+        for (int i = 0; i < contents.length && removed < amount; i++) {
+            ItemStack stack = contents[i];
+            if (!test(stack)) {
+                continue;
+            }
+            int taken = Math.min(stack.getAmount(), amount - removed);
+            removed += taken;
+            if (taken == stack.getAmount()) {
+                contents[i] = null;
+            } else {
+                stack.setAmount(stack.getAmount() - taken);
+            }
+        }
+        return removed;
+    }
+
+    private boolean testCheap(Material type, int amount, short durability) {
+        return type != Material.AIR
+                && (types == null || types.get(type.ordinal()))
+                && amount >= minAmount && amount <= maxAmount
+                && durability >= minDurability && durability <= maxDurability;
+    }
+
+    /**
+     * Tests the meta conditions
+     *
+     * @param meta   meta of the item, or null if it has none
+     * @param source the stack the meta belongs to, to read its cached registry id, or null
+     */
+    private boolean testMeta(ItemMeta meta, EItemStack source) {
+        if (meta == null) {
+            return displayName == null && !needsLore && enchantments.length == 0 && itemFlags.isEmpty()
+                    && !Boolean.TRUE.equals(unbreakable) && registryId == null && metaConditions.isEmpty();
+        }
+        if (displayName != null && !displayName.equals(meta.hasDisplayName() ? meta.getDisplayName() : null)) {
+            return false;
+        }
+        for (int i = 0; i < enchantments.length; i++) {
+            if (meta.getEnchantLevel(enchantments[i]) < minLevels[i]) {
+                return false;
+            }
+        }
+        for (ItemFlag flag : itemFlags) {
+            if (!meta.hasItemFlag(flag)) {
+                return false;
+            }
+        }
+        if (unbreakable != null && meta.spigot().isUnbreakable() != unbreakable) {
+            return false;
+        }
+        List<String> lore = null;
+        if (needsLore || registryId != null && source == null) {
+            lore = meta.hasLore() ? meta.getLore() : Collections.<String>emptyList();
+            if (!testLore(lore)) {
+                return false;
+            }
+        }
+        if (registryId != null && !registryId.equals(source != null ? source.getRegistryId() : HiddenTag.find(HiddenTag.REGISTRY, lore))) {
+            return false;
+        }
+        for (Predicate<? super ItemMeta> condition : metaConditions) {
+            if (!condition.test(meta)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean testLore(List<String> lore) {
+        for (String line : loreLines) {
+            if (!lore.contains(line)) {
+                return false;
+            }
+        }
+        for (String prefix : lorePrefixes) {
+            boolean found = false;
+            for (String line : lore) {
+                if (line != null && line.startsWith(prefix)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Collects the conditions of an {@link ItemMatcher}.<br>
+     * <code>set</code>xxx and <code>add</code>xxx methods will return the object itself.
+     */
+    public static final class Builder {
+
+        private BitSet types;
+        private int minAmount = 1;
+        private int maxAmount = Integer.MAX_VALUE;
+        private int minDurability = Short.MIN_VALUE;
+        private int maxDurability = Short.MAX_VALUE;
+        private String displayName;
+        private final List<String> loreLines = new ArrayList<>();
+        private final List<String> lorePrefixes = new ArrayList<>();
+        private final List<Enchantment> enchantments = new ArrayList<>();
+        private final List<Integer> minLevels = new ArrayList<>();
+        private final Set<ItemFlag> itemFlags = EnumSet.noneOf(ItemFlag.class);
+        private Boolean unbreakable;
+        private String registryId;
+        private final List<Predicate<? super ItemMeta>> metaConditions = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Only matches items of the given types
+         *
+         * @param types allowed types
+         */
+        public Builder setTypes(Material... types) {
+            this.types = new BitSet(Material.values().length);
+            for (Material type : types) {
+                this.types.set(type.ordinal());
+            }
+            return this;
+        }
+
+        /**
+         * Only matches stacks of the given size range
+         *
+         * @param min smallest stack size, inclusive
+         * @param max largest stack size, inclusive
+         */
+        public Builder setAmount(int min, int max) {
+            if (min > max) {
+                throw new IllegalArgumentException("Minimum amount " + min + " is greater than maximum " + max);
+            }
+            this.minAmount = min;
+            this.maxAmount = max;
+            return this;
+        }
+
+        /**
+         * Only matches items of the given durability range
+         *
+         * @param min lowest durability, inclusive
+         * @param max highest durability, inclusive
+         */
+        public Builder setDurability(int min, int max) {
+            if (min > max) {
+                throw new IllegalArgumentException("Minimum durability " + min + " is greater than maximum " + max);
+            }
+            this.minDurability = min;
+            this.maxDurability = max;
+            return this;
+        }
+
+        /**
+         * Only matches items with exactly the given display name
+         *
+         * @param displayName display name to match
+         */
+        public Builder setDisplayName(String displayName) {
+            this.displayName = displayName;
+            return this;
+        }
+
+        /**
+         * Only matches items which have the given line in their lore
+         *
+         * @param line line to look for
+         */
+        public Builder addLoreLine(String line) {
+            loreLines.add(line);
+            return this;
+        }
+
+        /**
+         * Only matches items which have a lore line starting with the given prefix
+         *
+         * @param prefix prefix to look for
+         */
+        public Builder addLorePrefix(String prefix) {
+            lorePrefixes.add(prefix);
+            return this;
+        }
+
+        /**
+         * Only matches items which have the given enchantment at or above the given level
+         *
+         * @param ench     enchantment to look for
+         * @param minLevel lowest level
+         */
+        public Builder addEnchantment(Enchantment ench, int minLevel) {
+            if (ench == null) {
+                throw new IllegalArgumentException("Enchantment cannot be null");
+            }
+            enchantments.add(ench);
+            minLevels.add(Math.max(minLevel, 1));
+            return this;
+        }
+
+        /**
+         * Only matches items which have all of the given flags
+         *
+         * @param itemFlags flags to look for
+         */
+        public Builder addItemFlags(ItemFlag... itemFlags) {
+            Collections.addAll(this.itemFlags, itemFlags);
+            return this;
+        }
+
+        /**
+         * Only matches items whose unbreakable tag is the given value
+         *
+         * @param unbreakable the value to match
+         */
+        public Builder setUnbreakable(boolean unbreakable) {
+            this.unbreakable = unbreakable;
+            return this;
+        }
+
+        /**
+         * Only matches items stamped with the given id by {@link EItemRegistry}
+         *
+         * @param registryId id to match
+         */
+        public Builder setRegistryId(String registryId) {
+            this.registryId = registryId;
+            return this;
+        }
+
+        /**
+         * Only matches items whose meta passes the given condition, which is tested after all others
+         *
+         * @param condition condition on the meta, which must not change it
+         */
+        public Builder addMetaCondition(Predicate<? super ItemMeta> condition) {
+            metaConditions.add(condition);
+            return this;
+        }
+
+        /**
+         * Compiles the conditions. The builder may be reused afterwards.
+         *
+         * @return the matcher
+         */
+        public ItemMatcher build() {
+            return new ItemMatcher(this);
+        }
+    }
+}
@@ -0,0 +1,547 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi;
+
+import com.google.gson.stream.JsonWriter;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Map;
+
+/**
+ * Writes items one by one to a JSON array or a YAML sequence, without building a map for each item.<br>
+ * Each item has the same fields as {@link EItemStack#serialize()}; its meta is written the way Bukkit's YAML
+ * configuration writes it, with the <code>==</code> key naming the serialized class.
+ * Empty slots may be written as <code>null</code>.
+ * <p>
+ * Read the output back with {@link ItemSource}.
+ */
+public final class ItemSink implements Closeable, Flushable {
+
+    private final Emitter emitter;
+    private boolean closed;
+
+    private ItemSink(Emitter emitter) throws IOException {
+        this.emitter = emitter;
+        emitter.beginList();
+    }
+
+    /**
+     * Creates a sink writing a JSON array
+     *
+     * @param writer writer to write to
+     * @return a new sink
+     * @throws IOException if an I/O error occurs
+     */
+    public static ItemSink json(Writer writer) throws IOException {
+        return new ItemSink(new JsonEmitter(writer));
+    }
+
+    /**
+     * Creates a sink writing a JSON array in UTF-8
+     *
+     * @param out stream to write to
+     * @return a new sink
+     * @throws IOException if an I/O error occurs
+     */
+    public static ItemSink json(OutputStream out) throws IOException {
+        return json(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Creates a sink writing a YAML sequence
+     *
+     * @param writer writer to write to
+     * @return a new sink
+     * @throws IOException if an I/O error occurs
+     */
+    public static ItemSink yaml(Writer writer) throws IOException {
+        return new ItemSink(new YamlEmitter(writer));
+    }
+
+    /**
+     * Creates a sink writing a YAML sequence in UTF-8
+     *
+     * @param out stream to write to
+     * @return a new sink
+     * @throws IOException if an I/O error occurs
+     */
+    public static ItemSink yaml(OutputStream out) throws IOException {
+        return yaml(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Writes an item
+     *
+     * @param stack item to write, or null for an empty slot
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(EItemStack stack) throws IOException {
+        if (closed) {
+            throw new IOException("Sink is closed");
+        }
+        if (stack == null) {
+            emitter.nullValue();
+            return;
+        }
+        Material type = stack.getType();
+        emitter.beginMap();
+        emitter.key("type");
+        emitter.value(type.name());
+        if (stack.getDurability() != 0) {
+            emitter.key("damage");
+            emitter.value(stack.getDurability());
+        }
+        if (stack.getAmount() != 1) {
+            emitter.key("amount");
+            emitter.value(stack.getAmount());
+        }
+        ItemMeta meta = type == Material.AIR ? null : stack.peekMeta();
+        if (meta != null && !Bukkit.getItemFactory().equals(meta, null)) {
+            emitter.key("meta");
+            writeObject(meta);
+        }
+        emitter.endMap();
+    }
+
+    /**
+     * Writes all the given items
+     *
+     * @param stacks items to write; null elements are written as empty slots
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeAll(Iterable<? extends EItemStack> stacks) throws IOException {
+        for (EItemStack stack : stacks) {
+            write(stack);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        emitter.flush();
+    }
+
+    /**
+     * Ends the array or sequence and closes the underlying writer
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        emitter.endList();
+        emitter.close();
+    }
+
+    private void writeObject(Object value) throws IOException {
+        if (value == null) {
+            emitter.nullValue();
+        } else if (value instanceof String) {
+            emitter.value((String) value);
+        } else if (value instanceof Boolean) {
+            emitter.value((Boolean) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            emitter.value(((Number) value).doubleValue());
+        } else if (value instanceof Number) {
+            emitter.value(((Number) value).longValue());
+        } else if (value instanceof ConfigurationSerializable) {
+            ConfigurationSerializable serializable = (ConfigurationSerializable) value;
+            emitter.beginMap();
+            emitter.key(ConfigurationSerialization.SERIALIZED_TYPE_KEY);
+            emitter.value(ConfigurationSerialization.getAlias(serializable.getClass()));
+            writeEntries(serializable.serialize());
+            emitter.endMap();
+        } else if (value instanceof Map) {
+            emitter.beginMap();
+            writeEntries((Map<?, ?>) value);
+            emitter.endMap();
+        } else if (value instanceof Collection) {
+            emitter.beginList();
+            for (Object element : (Collection<?>) value) {
+                writeObject(element);
+            }
+            emitter.endList();
+        } else if (value.getClass().isArray()) {
+            emitter.beginList();
+            for (int i = 0, length = Array.getLength(value); i < length; i++) {
+                writeObject(Array.get(value, i));
+            }
+            emitter.endList();
+        } else {
+            throw new IOException("Cannot write " + value.getClass().getName());
+        }
+    }
+
+    private void writeEntries(Map<?, ?> map) throws IOException {
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            emitter.key(String.valueOf(entry.getKey()));
+            writeObject(entry.getValue());
+        }
+    }
+
+    private interface Emitter extends Closeable, Flushable {
+
+        void beginMap() throws IOException;
+
+        void endMap() throws IOException;
+
+        void beginList() throws IOException;
+
+        void endList() throws IOException;
+
+        void key(String key) throws IOException;
+
+        void value(String value) throws IOException;
+
+        void value(long value) throws IOException;
+
+        void value(double value) throws IOException;
+
+        void value(boolean value) throws IOException;
+
+        void nullValue() throws IOException;
+    }
+
+    private static final class JsonEmitter implements Emitter {
+
+        private final JsonWriter out;
+
+        private JsonEmitter(Writer writer) {
+            out = new JsonWriter(writer);
+            out.setSerializeNulls(true);
+        }
+
+        @Override
+        public void beginMap() throws IOException {
+            out.beginObject();
+        }
+
+        @Override
+        public void endMap() throws IOException {
+            out.endObject();
+        }
+
+        @Override
+        public void beginList() throws IOException {
+            out.beginArray();
+        }
+
+        @Override
+        public void endList() throws IOException {
+            out.endArray();
+        }
+
+        @Override
+        public void key(String key) throws IOException {
+            out.name(key);
+        }
+
+        @Override
+        public void value(String value) throws IOException {
+            out.value(value);
+        }
+
+        @Override
+        public void value(long value) throws IOException {
+            out.value(value);
+        }
+
+        @Override
+        public void value(double value) throws IOException {
+            out.value(value);
+        }
+
+        @Override
+        public void value(boolean value) throws IOException {
+            out.value(value);
+        }
+
+        @Override
+        public void nullValue() throws IOException {
+            out.nullValue();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes block style YAML. Strings are always double-quoted so that they are never read back as numbers.
+     */
+    private static final class YamlEmitter implements Emitter {
+
+        private static final int ROOT = 0;
+        private static final int AFTER_KEY = 1;
+        private static final int AFTER_DASH = 2;
+
+        private final Writer out;
+        private final Deque<Frame> frames = new ArrayDeque<>();
+        private int position = ROOT;
+
+        private YamlEmitter(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void beginMap() throws IOException {
+            begin(true);
+        }
+
+        @Override
+        public void endMap() throws IOException {
+            end("{}");
+        }
+
+        @Override
+        public void beginList() throws IOException {
+            begin(false);
+        }
+
+        @Override
+        public void endList() throws IOException {
+            end("[]");
+        }
+
+        @Override
+        public void key(String key) throws IOException {
+            child();
+            if (isPlain(key)) {
+                out.write(key);
+            } else {
+                quote(key);
+            }
+            out.write(':');
+            position = AFTER_KEY;
+        }
+
+        @Override
+        public void value(String value) throws IOException {
+            scalarPrefix();
+            quote(value);
+            out.write('\n');
+        }
+
+        @Override
+        public void value(long value) throws IOException {
+            scalar(Long.toString(value));
+        }
+
+        @Override
+        public void value(double value) throws IOException {
+            scalar(Double.isNaN(value) ? ".nan" : Double.isInfinite(value) ? (value > 0 ? ".inf" : "-.inf") : toFloat(value));
+        }
+
+        @Override
+        public void value(boolean value) throws IOException {
+            scalar(Boolean.toString(value));
+        }
+
+        @Override
+        public void nullValue() throws IOException {
+            scalar("null");
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+        private void begin(boolean map) throws IOException {
+            Frame parent = frames.peek();
+            if (parent != null && !parent.map) {
+                child();
+            }
+            int indent = parent == null ? 0 : parent.indent + 2;
+            frames.push(new Frame(map, indent, position));
+            position = ROOT;
+        }
+
+        private void end(String empty) throws IOException {
+            Frame frame = frames.pop();
+            if (frame.count == 0) {
+                if (frame.opener == AFTER_KEY) {
+                    out.write(' ');
+                }
+                out.write(empty);
+                out.write('\n');
+            }
+            position = ROOT;
+        }
+
+        /**
+         * Starts a map entry or sequence entry of the current frame.
+         */
+        private void child() throws IOException {
+            Frame frame = frames.peek();
+            if (frame.count++ == 0 && frame.opener == AFTER_DASH) {
+                if (!frame.map) {
+                    out.write("- ");
+                    position = AFTER_DASH;
+                }
+                return;
+            }
+            if (frame.count == 1 && frame.opener == AFTER_KEY) {
+                out.write('\n');
+            }
+            indent(frame.indent);
+            if (!frame.map) {
+                out.write("- ");
+                position = AFTER_DASH;
+            }
+        }
+
+        private void scalar(String value) throws IOException {
+            scalarPrefix();
+            out.write(value);
+            out.write('\n');
+        }
+
+        private void scalarPrefix() throws IOException {
+            Frame frame = frames.peek();
+            if (frame != null && !frame.map) {
+                child();
+            }
+            if (position == AFTER_KEY) {
+                out.write(' ');
+            }
+            position = ROOT;
+        }
+
+        private void indent(int indent) throws IOException {
+            for (int i = 0; i < indent; i++) {
+                out.write(' ');
+            }
+        }
+
+        private void quote(String value) throws IOException {
+            out.write('"');
+            for (int i = 0, length = value.length(); i < length; i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                        out.write("\\\"");
+                        break;
+                    case '\\':
+                        out.write("\\\\");
+                        break;
+                    case '\n':
+                        out.write("\\n");
+                        break;
+                    case '\t':
+                        out.write("\\t");
+                        break;
+                    case '\r':
+                        out.write("\\r");
+                        break;
+                    default:
+                        if (c < 0x20 || c >= 0x7F && c <= 0x9F || c >= 0xD800 && c <= 0xDFFF && !isPair(value, i) || c >= 0xFFFE) {
+                            out.write(String.format("\\u%04x", (int) c));
+                        } else {
+                            out.write(c);
+                            if (Character.isHighSurrogate(c)) {
+                                out.write(value.charAt(++i));
+                            }
+                        }
+                }
+            }
+            out.write('"');
+        }
+
+        /**
+         * Formats a finite double as a YAML 1.1 float, whose exponent must be signed, e.g. {@code 1.0e+10}
+         */
+        private static String toFloat(double value) {
+            String text = Double.toString(value);
+            int exponent = text.indexOf('E');
+            if (exponent < 0) {
+                return text;
+            }
+            return text.substring(0, exponent) + (text.charAt(exponent + 1) == '-' ? "e" : "e+") + text.substring(exponent + 1);
+        }
+
+        private static boolean isPair(String value, int index) {
+            return Character.isHighSurrogate(value.charAt(index)) && index + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(index + 1));
+        }
+
+        private static boolean isPlain(String key) {
+            if (key.isEmpty()) {
+                return false;
+            }
+            for (int i = 0; i < key.length(); i++) {
+                char c = key.charAt(i);
+                if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_' || c == '-' && i > 0)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static final class Frame {
+
+            private final boolean map;
+            private final int indent;
+            private final int opener;
+            private int count;
+
+            private Frame(boolean map, int indent, int opener) {
+                this.map = map;
+                this.indent = indent;
+                this.opener = opener;
+            }
+        }
+    }
+}
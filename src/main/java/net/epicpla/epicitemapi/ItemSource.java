@@ -0,0 +1,390 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi;
+
+import org.bukkit.Material;
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.MappingEndEvent;
+import org.yaml.snakeyaml.events.MappingStartEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.events.SequenceEndEvent;
+import org.yaml.snakeyaml.events.SequenceStartEvent;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.regex.Pattern;
+
+/**
+ * Reads items one by one from a JSON array or a YAML sequence, such as the output of {@link ItemSink}.<br>
+ * The input is parsed as it is read, so only the current item is held in memory.
+ * As JSON is a subset of YAML, both forms are read by the same source.
+ */
+public final class ItemSource implements Closeable {
+
+    /**
+     * Plain scalars which YAML 1.1 resolves to an int: binary, octal, decimal, hexadecimal and base 60
+     */
+    private static final Pattern INT = Pattern.compile(
+            "[-+]?0b[0-1_]+|[-+]?0[0-7_]+|[-+]?(?:0|[1-9][0-9_]*)|[-+]?0x[0-9a-fA-F_]+|[-+]?[1-9][0-9_]*(?::[0-5]?[0-9])+");
+    /**
+     * Plain scalars which YAML 1.1 resolves to a float; unlike Java, the exponent must be signed
+     */
+    private static final Pattern FLOAT = Pattern.compile(
+            "[-+]?(?:\\.[0-9]+|[0-9_]+(?:\\.[0-9_]*)?)(?:[eE][-+][0-9]+)?|[-+]?[0-9][0-9_]*(?::[0-5]?[0-9])+\\.[0-9_]*"
+                    + "|[-+]?\\.(?:inf|Inf|INF)|\\.(?:nan|NaN|NAN)");
+
+    private final Reader reader;
+    private final Iterator<Event> events;
+    private boolean started;
+    private Event next;
+    private boolean finished;
+
+    /**
+     * Creates a source reading from the given reader
+     *
+     * @param reader reader to read from
+     */
+    public ItemSource(Reader reader) {
+        this.reader = reader;
+        this.events = new Yaml().parse(reader).iterator();
+    }
+
+    /**
+     * Creates a source reading UTF-8 from the given stream
+     *
+     * @param in stream to read from
+     */
+    public ItemSource(InputStream in) {
+        this(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Checks whether there is another item or empty slot to read
+     *
+     * @return true if {@link #next()} will return an entry
+     * @throws IOException if an I/O error occurs or the input is malformed
+     */
+    public boolean hasNext() throws IOException {
+        if (finished) {
+            return false;
+        }
+        if (next == null) {
+            try {
+                if (!started) {
+                    started = true;
+                    if (!skipToSequence()) {
+                        finished = true;
+                        return false;
+                    }
+                }
+                next = events.next();
+            } catch (YAMLException | NoSuchElementException e) {
+                throw new IOException("Malformed item input", e);
+            }
+        }
+        if (next instanceof SequenceEndEvent) {
+            finished = true;
+            next = null;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads the next item
+     *
+     * @return the item, or null for an empty slot
+     * @throws IOException            if an I/O error occurs or the input is malformed
+     * @throws NoSuchElementException if there is no more item
+     */
+    public EItemStack next() throws IOException {
+        Map<String, Object> fields = nextFields();
+        if (fields == null) {
+            return null;
+        }
+        try {
+            return toStack(deserializeValues(fields));
+        } catch (IllegalArgumentException | ClassCastException e) {
+            throw new IOException("Malformed item input", e);
+        }
+    }
+
+    /**
+     * Reads the next item without deserializing it.
+     * The whole item is consumed, so the source stays usable even if the item would not deserialize.
+     *
+     * @return the fields of the item, in which serialized objects such as its meta are still maps, or null for an empty slot
+     * @throws IOException            if an I/O error occurs or the input is malformed
+     * @throws NoSuchElementException if there is no more item
+     */
+    @SuppressWarnings("unchecked")
+    Map<String, Object> nextFields() throws IOException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Event event = next;
+        next = null;
+        try {
+            Object value = readValue(event);
+            if (value == null) {
+                return null;
+            }
+            if (!(value instanceof Map)) {
+                throw new IOException("Expected an item but found " + value);
+            }
+            return (Map<String, Object>) value;
+        } catch (YAMLException | NoSuchElementException e) {
+            throw new IOException("Malformed item input", e);
+        }
+    }
+
+    /**
+     * Reads all remaining items
+     *
+     * @return the items; empty slots are null elements
+     * @throws IOException if an I/O error occurs or the input is malformed
+     */
+    public List<EItemStack> readAll() throws IOException {
+        List<EItemStack> stacks = new ArrayList<>();
+        while (hasNext()) {
+            stacks.add(next());
+        }
+        return stacks;
+    }
+
+    @Override
+    public void close() throws IOException {
+        finished = true;
+        reader.close();
+    }
+
+    private boolean skipToSequence() throws IOException {
+        while (events.hasNext()) {
+            Event event = events.next();
+            if (event instanceof SequenceStartEvent) {
+                return true;
+            }
+            if (event instanceof MappingStartEvent || event instanceof ScalarEvent || event instanceof AliasEvent) {
+                throw new IOException("Expected a sequence of items");
+            }
+        }
+        return false;
+    }
+
+    private Object readValue(Event event) throws IOException {
+        if (event instanceof ScalarEvent) {
+            return resolve((ScalarEvent) event);
+        }
+        if (event instanceof MappingStartEvent) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (Event key = events.next(); !(key instanceof MappingEndEvent); key = events.next()) {
+                map.put(String.valueOf(readValue(key)), readValue(events.next()));
+            }
+            return map;
+        }
+        if (event instanceof SequenceStartEvent) {
+            List<Object> list = new ArrayList<>();
+            for (Event element = events.next(); !(element instanceof SequenceEndEvent); element = events.next()) {
+                list.add(readValue(element));
+            }
+            return list;
+        }
+        throw new IOException("Unexpected " + event);
+    }
+
+    private static Object resolve(ScalarEvent event) {
+        String value = event.getValue();
+        if (!event.getImplicit().canOmitTagInPlainScalar()) {
+            return value;
+        }
+        switch (value) {
+            case "":
+            case "~":
+            case "null":
+            case "Null":
+            case "NULL":
+                return null;
+            case "true":
+            case "True":
+            case "TRUE":
+                return Boolean.TRUE;
+            case "false":
+            case "False":
+            case "FALSE":
+                return Boolean.FALSE;
+            default:
+                break;
+        }
+        char first = value.charAt(0);
+        if (first == '-' || first == '+' || first == '.' || first >= '0' && first <= '9') {
+            try {
+                if (INT.matcher(value).matches()) {
+                    return toInteger(value);
+                }
+                if (FLOAT.matcher(value).matches()) {
+                    return toFloat(value);
+                }
+            } catch (NumberFormatException ignored) {
+                // digits made only of underscores, which YAML leaves a string
+            }
+        }
+        return value;
+    }
+
+    private static Number toInteger(String value) {
+        String digits = value.indexOf('_') < 0 ? value : value.replace("_", "");
+        String sign = digits.charAt(0) == '-' ? "-" : "";
+        int start = digits.charAt(0) == '-' || digits.charAt(0) == '+' ? 1 : 0;
+        if (digits.indexOf(':') >= 0) {
+            long number = 0;
+            for (String part : digits.substring(start).split(":")) {
+                number = number * 60 + Long.parseLong(part);
+            }
+            return narrow(sign.isEmpty() ? number : -number);
+        }
+        int radix = 10;
+        if (digits.startsWith("0b", start)) {
+            radix = 2;
+            start += 2;
+        } else if (digits.startsWith("0x", start)) {
+            radix = 16;
+            start += 2;
+        } else if (digits.length() - start > 1 && digits.charAt(start) == '0') {
+            radix = 8;
+            start++;
+        }
+        String magnitude = sign + digits.substring(start);
+        try {
+            return narrow(Long.parseLong(magnitude, radix));
+        } catch (NumberFormatException e) {
+            return new BigInteger(magnitude, radix);
+        }
+    }
+
+    private static Number narrow(long number) {
+        if (number == (int) number) {
+            return (int) number;
+        }
+        return number;
+    }
+
+    private static Double toFloat(String value) {
+        String digits = value.indexOf('_') < 0 ? value : value.replace("_", "");
+        int start = digits.charAt(0) == '-' || digits.charAt(0) == '+' ? 1 : 0;
+        double sign = digits.charAt(0) == '-' ? -1 : 1;
+        String magnitude = digits.substring(start).toLowerCase(Locale.ROOT);
+        if (magnitude.equals(".inf")) {
+            return sign * Double.POSITIVE_INFINITY;
+        }
+        if (magnitude.equals(".nan")) {
+            return Double.NaN;
+        }
+        if (magnitude.indexOf(':') >= 0) {
+            double number = 0;
+            for (String part : magnitude.split(":")) {
+                number = number * 60 + Double.parseDouble(part);
+            }
+            return sign * number;
+        }
+        return Double.parseDouble(digits);
+    }
+
+    /**
+     * Deserializes the objects, such as meta, among the values of the given fields, innermost first
+     *
+     * @param fields fields as read by {@link #nextFields()}
+     * @return a copy of the fields holding the deserialized objects
+     * @throws IllegalArgumentException if an object cannot be deserialized
+     */
+    static Map<String, Object> deserializeValues(Map<String, Object> fields) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : fields.entrySet()) {
+            result.put(entry.getKey(), deserializeObjects(entry.getValue()));
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object deserializeObjects(Object value) {
+        if (value instanceof Map) {
+            Map<String, Object> map = deserializeValues((Map<String, Object>) value);
+            if (!map.containsKey(ConfigurationSerialization.SERIALIZED_TYPE_KEY)) {
+                return map;
+            }
+            ConfigurationSerializable object = ConfigurationSerialization.deserializeObject(map);
+            if (object == null) {
+                throw new IllegalArgumentException("Cannot deserialize " + map.get(ConfigurationSerialization.SERIALIZED_TYPE_KEY));
+            }
+            return object;
+        }
+        if (value instanceof List) {
+            List<Object> list = new ArrayList<>(((List<?>) value).size());
+            for (Object element : (List<?>) value) {
+                list.add(deserializeObjects(element));
+            }
+            return list;
+        }
+        return value;
+    }
+
+    private static EItemStack toStack(Map<?, ?> fields) throws IOException {
+        Object typeName = fields.get("type");
+        Material type = EItemResolver.getMaterial(typeName == null ? null : typeName.toString());
+        if (type == null) {
+            throw new IOException("Unknown material " + typeName);
+        }
+        Object damage = fields.get("damage");
+        Object amount = fields.get("amount");
+        ItemStack result = new ItemStack(type,
+                amount instanceof Number ? ((Number) amount).intValue() : 1,
+                damage instanceof Number ? ((Number) damage).shortValue() : 0);
+        Object meta = fields.get("meta");
+        if (meta instanceof ItemMeta) {
+            result.setItemMeta((ItemMeta) meta);
+        }
+        return new EItemStack(result, null);
+    }
+}
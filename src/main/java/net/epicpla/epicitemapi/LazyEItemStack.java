@@ -0,0 +1,189 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * An {@link EItemStack} which keeps its serialized form until it is first used.<br>
+ * The {@link ItemStack} is created by the first method which needs it.
+ * {@link #getType()}, {@link #getAmount()} and {@link #getDurability()} are answered from the serialized form,
+ * and {@link #clone()} shares it, so none of them create the stack.
+ * <p>
+ * The serialized form must not be changed after it is given to this object.
+ */
+public final class LazyEItemStack extends EItemStack {
+
+    private Map<String, Object> serialized;
+    private byte[] encoded;
+    private boolean headerRead;
+    private Material type;
+    private short durability;
+    private int amount;
+
+    /**
+     * Defers {@link EItemStack#deserialize(Map)} of the given map
+     *
+     * @param serialized map in the form of {@link EItemStack#serialize()};
+     *                   serialized objects within it, such as the meta, may still be maps as read from YAML
+     */
+    public LazyEItemStack(final Map<String, Object> serialized) {
+        this.serialized = serialized;
+    }
+
+    /**
+     * Defers {@link EItemCodec#decode(byte[])} of the given bytes
+     *
+     * @param encoded bytes encoded by {@link EItemCodec}
+     */
+    public LazyEItemStack(final byte[] encoded) {
+        this.encoded = encoded;
+    }
+
+    /**
+     * Checks whether the {@link ItemStack} has been created
+     *
+     * @return true if the serialized form has been decoded
+     */
+    public boolean isMaterialized() {
+        return serialized == null && encoded == null;
+    }
+
+    @Override
+    ItemStack handle() {
+        if (!isMaterialized()) {
+            materialize();
+        }
+        return super.handle();
+    }
+
+    @Override
+    public Material getType() {
+        if (isMaterialized()) {
+            return super.getType();
+        }
+        readHeader();
+        return type;
+    }
+
+    @Override
+    public int getAmount() {
+        if (isMaterialized()) {
+            return super.getAmount();
+        }
+        readHeader();
+        return amount;
+    }
+
+    @Override
+    public short getDurability() {
+        if (isMaterialized()) {
+            return super.getDurability();
+        }
+        readHeader();
+        return durability;
+    }
+
+    @Override
+    public EItemStack clone() {
+        if (serialized != null) {
+            return new LazyEItemStack(serialized);
+        }
+        if (encoded != null) {
+            return new LazyEItemStack(encoded);
+        }
+        return super.clone();
+    }
+
+    /**
+     * Gets the encoded form if the stack has not been created yet
+     *
+     * @return the bytes given to the constructor, or null
+     */
+    byte[] getEncoded() {
+        return encoded;
+    }
+
+    private void materialize() {
+        EItemStack stack;
+        if (serialized != null) {
+            // The header check reports an unknown material, which deserialize would not
+            readHeader();
+            try {
+                stack = EItemStack.deserialize(ItemSource.deserializeValues(serialized));
+            } catch (ClassCastException e) {
+                throw new IllegalArgumentException("Malformed stack", e);
+            }
+        } else {
+            stack = EItemCodec.decode(encoded);
+        }
+        serialized = null;
+        encoded = null;
+        initHandle(stack.handle());
+    }
+
+    @SuppressWarnings("deprecation")
+    private void readHeader() {
+        if (headerRead) {
+            return;
+        }
+        if (serialized != null) {
+            Object type = serialized.get("type");
+            Object damage = serialized.get("damage");
+            Object amount = serialized.get("amount");
+            this.type = EItemResolver.getMaterial(type == null ? null : type.toString());
+            if (this.type == null) {
+                throw new IllegalArgumentException("Unknown material " + type);
+            }
+            this.durability = damage instanceof Number ? ((Number) damage).shortValue() : 0;
+            this.amount = amount instanceof Number ? ((Number) amount).intValue() : 1;
+        } else {
+            ByteBuffer buffer = ByteBuffer.wrap(encoded);
+            try {
+                int version = buffer.get() & 0xFF;
+                if (version != EItemCodec.VERSION) {
+                    throw new IllegalArgumentException("Unsupported format version " + version);
+                }
+                int id = EItemCodec.readVarInt(buffer);
+                this.type = EItemResolver.getMaterial(id);
+                if (this.type == null) {
+                    throw new IllegalArgumentException("Unknown material id " + id);
+                }
+                int fields = EItemCodec.readVarInt(buffer);
+                this.durability = (fields & EItemCodec.DAMAGE) != 0 ? (short) EItemCodec.readVarInt(buffer) : 0;
+                this.amount = (fields & EItemCodec.AMOUNT) != 0 ? EItemCodec.readVarInt(buffer) : 1;
+            } catch (BufferUnderflowException e) {
+                throw new IllegalArgumentException("Malformed stack", e);
+            }
+        }
+        headerRead = true;
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi;
+
+import org.bukkit.ChatColor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded cache of formatted display names and lore, evicting the least recently used entries.<br>
+ * Formatting translates <code>&amp;</code> color codes of the template, then replaces the positional
+ * placeholders <code>{0}</code>, <code>{1}</code>, ... with the arguments. Arguments are not color translated.
+ * <p>
+ * Entries are keyed by the template and the string values of the arguments. This class is thread-safe.
+ *
+ * @see EItemStack#setFormattedDisplayName(String, Object...)
+ * @see EItemStack#setFormattedLore(List, Object...)
+ */
+public final class TextFormatCache {
+
+    /**
+     * The size of the default cache
+     */
+    public static final int DEFAULT_MAX_SIZE = 4096;
+
+    private static final TextFormatCache DEFAULT = new TextFormatCache(DEFAULT_MAX_SIZE);
+
+    private final Map<Key, Object> entries;
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates a cache holding at most the given number of entries
+     *
+     * @param maxSize maximum number of entries
+     */
+    public TextFormatCache(final int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Max size must be positive");
+        }
+        this.entries = new LinkedHashMap<Key, Object>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Gets the cache shared by {@link EItemStack}
+     *
+     * @return the default cache
+     */
+    public static TextFormatCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Formats a single line
+     *
+     * @param template text with <code>&amp;</code> color codes and <code>{index}</code> placeholders
+     * @param args     values of the placeholders
+     * @return the formatted text
+     */
+    public String format(String template, Object... args) {
+        Key key = new Key(template, toStrings(args));
+        Object cached = get(key);
+        if (cached != null) {
+            return (String) cached;
+        }
+        String formatted = apply(template, key.args);
+        put(key, formatted);
+        return formatted;
+    }
+
+    /**
+     * Formats every line of a lore. The returned list is immutable and may be shared by several callers.
+     *
+     * @param templates lines with <code>&amp;</code> color codes and <code>{index}</code> placeholders
+     * @param args      values of the placeholders
+     * @return the formatted lines
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> formatLore(List<String> templates, Object... args) {
+        Key key = new Key(templates.toArray(new String[templates.size()]), toStrings(args));
+        Object cached = get(key);
+        if (cached != null) {
+            return (List<String>) cached;
+        }
+        List<String> lines = new ArrayList<>(templates.size());
+        for (String template : templates) {
+            lines.add(apply(template, key.args));
+        }
+        List<String> formatted = Collections.unmodifiableList(lines);
+        put(key, formatted);
+        return formatted;
+    }
+
+    /**
+     * Gets the number of lookups answered from the cache
+     *
+     * @return number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of lookups which had to format
+     *
+     * @return number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Gets the number of cached entries
+     *
+     * @return number of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes all entries and resets the counts
+     */
+    public synchronized void clear() {
+        entries.clear();
+        hits = 0;
+        misses = 0;
+    }
+
+    private synchronized Object get(Key key) {
+        Object value = entries.get(key);
+        if (value != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return value;
+    }
+
+    private synchronized void put(Key key, Object value) {
+        entries.put(key, value);
+    }
+
+    private static String apply(String template, String[] args) {
+        return TextTemplate.compile(ChatColor.translateAlternateColorCodes('&', template)).apply(name -> {
+            int index = parseIndex(name);
+            return index >= 0 && index < args.length ? args[index] : null;
+        });
+    }
+
+    private static int parseIndex(String name) {
+        if (name.length() > 9) {
+            return -1;
+        }
+        int index = 0;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            index = index * 10 + (c - '0');
+        }
+        return index;
+    }
+
+    private static String[] toStrings(Object[] args) {
+        String[] strings = new String[args.length];
+        for (int i = 0; i < args.length; i++) {
+            strings[i] = String.valueOf(args[i]);
+        }
+        return strings;
+    }
+
+    private static final class Key {
+
+        private final Object template;
+        private final String[] args;
+        private final int hash;
+
+        private Key(String template, String[] args) {
+            this.template = template;
+            this.args = args;
+            this.hash = template.hashCode() * 31 + Arrays.hashCode(args);
+        }
+
+        private Key(String[] templates, String[] args) {
+            this.template = templates;
+            this.args = args;
+            this.hash = ~Arrays.hashCode(templates) * 31 + Arrays.hashCode(args);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) obj;
+            if (hash != key.hash || !Arrays.equals(args, key.args)) {
+                return false;
+            }
+            if (template instanceof String) {
+                return template.equals(key.template);
+            }
+            return key.template instanceof String[] && Arrays.equals((String[]) template, (String[]) key.template);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
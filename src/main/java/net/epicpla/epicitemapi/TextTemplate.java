@@ -0,0 +1,118 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A text with <code>{key}</code> placeholders, split once into literal parts and keys.
+ */
+final class TextTemplate {
+
+    private final String source;
+    private final String[] literals;
+    private final String[] keys;
+
+    private TextTemplate(String source, String[] literals, String[] keys) {
+        this.source = source;
+        this.literals = literals;
+        this.keys = keys;
+    }
+
+    /**
+     * Compiles the given text.
+     *
+     * @param text text to compile
+     * @return compiled template
+     */
+    static TextTemplate compile(String text) {
+        List<String> literals = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        int start = 0;
+        int open = text.indexOf('{');
+        while (open >= 0) {
+            int close = text.indexOf('}', open + 1);
+            if (close < 0) {
+                break;
+            }
+            int nested = text.lastIndexOf('{', close);
+            if (nested > open) {
+                open = nested;
+            }
+            if (close > open + 1) {
+                literals.add(text.substring(start, open));
+                keys.add(text.substring(open + 1, close));
+                start = close + 1;
+            }
+            open = text.indexOf('{', close + 1);
+        }
+        literals.add(text.substring(start));
+        return new TextTemplate(text, literals.toArray(new String[0]), keys.toArray(new String[0]));
+    }
+
+    /**
+     * Checks whether this text has any placeholder.
+     *
+     * @return true if there is at least one placeholder
+     */
+    boolean hasPlaceholders() {
+        return keys.length != 0;
+    }
+
+    /**
+     * Gets the text this template was compiled from.
+     *
+     * @return the source text
+     */
+    String getSource() {
+        return source;
+    }
+
+    /**
+     * Replaces the placeholders. Placeholders the lookup has no value for are left as they are.
+     *
+     * @param lookup gives the value of a key, or null
+     * @return the replaced text
+     */
+    String apply(Function<String, ?> lookup) {
+        if (keys.length == 0) {
+            return source;
+        }
+        StringBuilder builder = new StringBuilder(source.length() + 16 * keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            builder.append(literals[i]);
+            Object value = lookup.apply(keys[i]);
+            if (value == null) {
+                builder.append('{').append(keys[i]).append('}');
+            } else {
+                builder.append(value);
+            }
+        }
+        return builder.append(literals[keys.length]).toString();
+    }
+}
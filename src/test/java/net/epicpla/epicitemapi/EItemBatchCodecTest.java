@@ -0,0 +1,138 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi;
+
+import net.epicpla.epicitemapi.standin.StandIn;
+import org.bukkit.Material;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemFlag;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class EItemBatchCodecTest {
+
+    @BeforeClass
+    public static void installServer() {
+        StandIn.install();
+    }
+
+    private static EItemStack[] inventory() {
+        EItemStack[] stacks = new EItemStack[36];
+        for (int i = 0; i < stacks.length; i++) {
+            if (i % 5 == 4) {
+                continue;
+            }
+            EItemStack stack = new EItemStack(i % 2 == 0 ? Material.STONE : Material.DIAMOND_SWORD, 1 + i % 3);
+            if (i % 3 != 0) {
+                stack.setDisplayName("Legendary Sword " + i % 4).setLore("Forged in fire", "Soulbound", "Level " + i % 7)
+                        .addUnsafeEnchantment(Enchantment.DAMAGE_ALL, 1 + i % 5).addItemFlags(ItemFlag.HIDE_ENCHANTS);
+            }
+            stacks[i] = stack;
+        }
+        return stacks;
+    }
+
+    @Test
+    public void roundTripsInventory() {
+        EItemStack[] stacks = inventory();
+        EItemBatchCodec codec = new EItemBatchCodec();
+        assertArrayEquals(stacks, codec.decode(codec.encode(stacks)));
+    }
+
+    @Test
+    public void roundTripsEmptyBatch() {
+        EItemBatchCodec codec = new EItemBatchCodec();
+        assertArrayEquals(new EItemStack[0], codec.decode(codec.encode()));
+    }
+
+    @Test
+    public void roundTripsWithDictionary() {
+        EItemStack[] stacks = inventory();
+        byte[] dictionary = EItemBatchCodec.trainDictionary(Arrays.asList(stacks), 4096);
+        assertTrue(dictionary.length > 0);
+        EItemBatchCodec codec = new EItemBatchCodec(dictionary);
+        byte[] encoded = codec.encode(stacks);
+        assertArrayEquals(stacks, codec.decode(encoded));
+        assertTrue(encoded.length < new EItemBatchCodec().encode(stacks).length);
+    }
+
+    @Test
+    public void growsForLargeBatches() {
+        List<EItemStack> stacks = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            stacks.add(new EItemStack(Material.PAPER).setDisplayName("Note " + i).setLore("Written on day " + i));
+        }
+        EItemStack[] batch = stacks.toArray(new EItemStack[0]);
+        EItemBatchCodec codec = new EItemBatchCodec();
+        assertArrayEquals(batch, codec.decode(codec.encode(batch)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMissingDictionary() {
+        EItemStack[] stacks = inventory();
+        byte[] dictionary = EItemBatchCodec.trainDictionary(Arrays.asList(stacks), 4096);
+        new EItemBatchCodec().decode(new EItemBatchCodec(dictionary).encode(stacks));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOtherDictionary() {
+        EItemStack[] stacks = inventory();
+        byte[] dictionary = EItemBatchCodec.trainDictionary(Arrays.asList(stacks), 4096);
+        new EItemBatchCodec(new byte[]{1, 2, 3}).decode(new EItemBatchCodec(dictionary).encode(stacks));
+    }
+
+    @Test
+    public void rejectsEveryTruncation() {
+        EItemBatchCodec codec = new EItemBatchCodec();
+        byte[] encoded = codec.encode(inventory());
+        for (int length = 0; length < encoded.length; length++) {
+            try {
+                codec.decode(Arrays.copyOf(encoded, length));
+                fail("Decoded " + length + " of " + encoded.length + " bytes");
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeLength() {
+        new EItemBatchCodec().decode(new byte[]{EItemBatchCodec.VERSION, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F, 0});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNullLoreLine() {
+        new EItemBatchCodec().encode(new EItemStack(Material.STONE).setLore(Arrays.asList("a", null)));
+    }
+}
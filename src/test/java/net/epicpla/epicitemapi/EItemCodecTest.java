@@ -0,0 +1,140 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi;
+
+import net.epicpla.epicitemapi.standin.StandIn;
+import org.bukkit.Material;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemFlag;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public class EItemCodecTest {
+
+    @BeforeClass
+    public static void installServer() {
+        StandIn.install();
+    }
+
+    @Test
+    public void roundTripsPlainStack() {
+        EItemStack stack = new EItemStack(Material.STONE);
+        assertEquals(stack, EItemCodec.decode(EItemCodec.encode(stack)));
+    }
+
+    @Test
+    public void roundTripsCompactMeta() {
+        EItemStack stack = new EItemStack(Material.DIAMOND_SWORD, 1).setDurability((short) 12)
+                .setDisplayName("§bBlade").setLore("First", "", "§7Third")
+                .addUnsafeEnchantment(Enchantment.DAMAGE_ALL, 7).addEnchantment(Enchantment.DURABILITY, 3)
+                .addItemFlags(ItemFlag.HIDE_ENCHANTS, ItemFlag.HIDE_UNBREAKABLE).setUnbreakable(true);
+        EItemStack decoded = EItemCodec.decode(EItemCodec.encode(stack));
+        assertEquals(stack, decoded);
+        assertEquals(Arrays.asList("First", "", "§7Third"), decoded.getLore());
+        assertEquals(7, decoded.getEnchantmentLevel(Enchantment.DAMAGE_ALL));
+    }
+
+    @Test
+    public void readsConsecutiveStacks() {
+        EItemStack first = new EItemStack(Material.STONE, 64);
+        EItemStack second = new EItemStack(Material.DIRT, 2).setDisplayName("Dirt");
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        EItemCodec.write(first, buffer);
+        EItemCodec.write(second, buffer);
+        buffer.flip();
+        assertEquals(first, EItemCodec.read(buffer));
+        assertEquals(second, EItemCodec.read(buffer));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void growsForLargeStacks() {
+        String[] lore = new String[100];
+        Arrays.fill(lore, "A long line of lore which does not fit into the initial buffer");
+        EItemStack stack = new EItemStack(Material.PAPER).setLore(lore);
+        assertEquals(stack, EItemCodec.decode(EItemCodec.encode(stack)));
+    }
+
+    @Test
+    public void writesLazyBytesVerbatim() {
+        byte[] encoded = EItemCodec.encode(new EItemStack(Material.STONE, 3).setDisplayName("Name"));
+        LazyEItemStack lazy = new LazyEItemStack(encoded);
+        assertArrayEquals(encoded, EItemCodec.encode(lazy));
+        assertFalse(lazy.isMaterialized());
+    }
+
+    @Test
+    public void reencodesLazyBytesWithTrailingData() {
+        byte[] encoded = EItemCodec.encode(new EItemStack(Material.STONE, 3));
+        assertArrayEquals(encoded, EItemCodec.encode(new LazyEItemStack(Arrays.copyOf(encoded, encoded.length + 2))));
+    }
+
+    @Test
+    public void rejectsEveryTruncation() {
+        byte[] encoded = EItemCodec.encode(new EItemStack(Material.STONE, 3).setDisplayName("Name").setLore("a", "b"));
+        for (int length = 0; length < encoded.length; length++) {
+            try {
+                EItemCodec.decode(Arrays.copyOf(encoded, length));
+                fail("Decoded " + length + " of " + encoded.length + " bytes");
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeCount() {
+        EItemCodec.decode(new byte[]{EItemCodec.VERSION, 1, EItemCodec.LORE, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownMaterial() {
+        EItemCodec.decode(new byte[]{EItemCodec.VERSION, 127, 0});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownVersion() {
+        EItemCodec.decode(new byte[]{EItemCodec.VERSION + 1, 1, 0});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNullLoreLine() {
+        EItemCodec.encode(new EItemStack(Material.STONE).setLore(Arrays.asList("a", null)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMalformedLazyHeader() {
+        new LazyEItemStack(new byte[]{EItemCodec.VERSION}).getType();
+    }
+}
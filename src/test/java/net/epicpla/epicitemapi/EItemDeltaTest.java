@@ -0,0 +1,122 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi;
+
+import net.epicpla.epicitemapi.standin.StandIn;
+import org.bukkit.Material;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemFlag;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class EItemDeltaTest {
+
+    private static final String SWORD = "delta-test-sword";
+
+    private EItemDelta delta;
+
+    @Before
+    public void registerTemplate() {
+        StandIn.install();
+        EItemRegistry.getDefault().register(SWORD, new EItemStack(Material.DIAMOND_SWORD)
+                .setDisplayName("Sword").setLore("First", "Second", "Third")
+                .addUnsafeEnchantment(Enchantment.DAMAGE_ALL, 5));
+        delta = new EItemDelta(EItemRegistry.getDefault());
+    }
+
+    @After
+    public void unregisterTemplate() {
+        EItemRegistry.getDefault().unregister(SWORD);
+    }
+
+    @Test
+    public void roundTripsUnchangedItem() {
+        EItemStack stack = EItemRegistry.getDefault().create(SWORD);
+        byte[] encoded = delta.encode(stack);
+        assertEquals(stack, delta.decode(encoded)[0]);
+        assertTrue(encoded.length < EItemCodec.encode(stack).length);
+    }
+
+    @Test
+    public void roundTripsChangedFields() {
+        EItemStack stack = EItemRegistry.getDefault().create(SWORD).setDurability((short) 40)
+                .setDisplayName("Renamed").setLoreLine(1, "Changed").addLoreLine("Added")
+                .addUnsafeEnchantment(Enchantment.DURABILITY, 3).addItemFlags(ItemFlag.HIDE_ENCHANTS).setUnbreakable(true);
+        EItemStack decoded = delta.decode(delta.encode(stack))[0];
+        assertEquals(stack, decoded);
+        assertEquals(stack.getLore(), decoded.getLore());
+    }
+
+    @Test
+    public void roundTripsRemovedLines() {
+        EItemStack stack = EItemRegistry.getDefault().create(SWORD).removeLoreLine(2).removeLoreLine(1);
+        assertEquals(stack, delta.decode(delta.encode(stack))[0]);
+    }
+
+    @Test
+    public void roundTripsWholeItemsAndEmptySlots() {
+        EItemStack plain = new EItemStack(Material.STONE, 12).setDisplayName("Stone");
+        EItemStack[] decoded = delta.decode(delta.encode(plain, null, EItemRegistry.getDefault().create(SWORD)));
+        assertEquals(3, decoded.length);
+        assertEquals(plain, decoded[0]);
+        assertNull(decoded[1]);
+        assertEquals(EItemRegistry.getDefault().create(SWORD), decoded[2]);
+    }
+
+    @Test
+    public void rejectsEveryTruncation() {
+        EItemStack stack = EItemRegistry.getDefault().create(SWORD).setLore("First", "Other", "Third");
+        byte[] encoded = delta.encode(stack, null, stack);
+        for (int length = 0; length < encoded.length; length++) {
+            try {
+                delta.decode(Arrays.copyOf(encoded, length));
+                fail("Decoded " + length + " of " + encoded.length + " bytes");
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnregisteredTemplate() {
+        byte[] encoded = delta.encode(EItemRegistry.getDefault().create(SWORD));
+        EItemRegistry.getDefault().unregister(SWORD);
+        delta.decode(encoded);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNullLoreLine() {
+        delta.encode(EItemRegistry.getDefault().create(SWORD).setLore(Arrays.asList("First", null)));
+    }
+}
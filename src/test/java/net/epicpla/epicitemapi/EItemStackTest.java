@@ -0,0 +1,84 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi;
+
+import net.epicpla.epicitemapi.standin.StandIn;
+import org.bukkit.Material;
+import org.bukkit.enchantments.Enchantment;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class EItemStackTest {
+
+    @Before
+    public void installServer() {
+        StandIn.install();
+    }
+
+    @Test
+    public void sessionStartsFromCurrentMeta() {
+        EItemStack stack = new EItemStack(Material.STONE).setDisplayName("Stone").setLore("First");
+        stack.beginMeta();
+        assertEquals("Stone", stack.getDisplayName());
+        stack.addLoreLine("Second");
+        stack.commitMeta();
+        assertEquals("Stone", stack.getDisplayName());
+        assertEquals(Arrays.asList("First", "Second"), stack.getLore());
+    }
+
+    @Test
+    public void sessionIsWrittenBackOnCommit() {
+        EItemStack stack = new EItemStack(Material.STONE);
+        stack.editMeta(meta -> stack.setDisplayName("Stone").addUnsafeEnchantment(Enchantment.DURABILITY, 3));
+        assertFalse(stack.isEditingMeta());
+        assertEquals("Stone", stack.getItemStack().getItemMeta().getDisplayName());
+        assertEquals(3, stack.getItemStack().getEnchantmentLevel(Enchantment.DURABILITY));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void sessionEnchantmentLevelsFollowChanges() {
+        int id = Enchantment.DURABILITY.getId();
+        int[] levels = new int[id + 1];
+        levels[id] = 3;
+        EItemStack stack = new EItemStack(Material.STONE).beginMeta();
+        assertEquals(0, stack.getEnchantmentLevel(id));
+        stack.addUnsafeEnchantmentLevels(levels);
+        assertEquals(3, stack.getEnchantmentLevel(id));
+        stack.addUnsafeEnchantment(Enchantment.DURABILITY, 5);
+        assertEquals(5, stack.getEnchantmentLevel(id));
+        stack.removeEnchantment(Enchantment.DURABILITY);
+        assertEquals(0, stack.getEnchantmentLevel(id));
+        stack.commitMeta();
+        stack.editMeta(meta -> meta.addEnchant(Enchantment.DURABILITY, 2, true));
+        assertEquals(2, stack.getEnchantmentLevel(id));
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi;
+
+import net.epicpla.epicitemapi.standin.StandIn;
+import org.bukkit.Material;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EItemStoreTest {
+
+    private static final UUID OWNER = new UUID(1, 1);
+
+    private Path directory;
+    private Path data;
+
+    @Before
+    public void createDirectory() throws IOException {
+        StandIn.install();
+        directory = Files.createTempDirectory("store");
+        data = directory.resolve("items.dat");
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static EItemStack item(int amount) {
+        return new EItemStack(Material.STONE, amount).setDisplayName("Item " + amount);
+    }
+
+    private static Path index(Path data) {
+        return data.resolveSibling(data.getFileName() + ".idx");
+    }
+
+    @Test
+    public void keepsItemsAcrossReopen() throws IOException {
+        try (EItemStore store = EItemStore.open(data)) {
+            store.put(OWNER, 0, item(1));
+            store.put(OWNER, 3, item(3));
+            store.put(OWNER, 0, item(2));
+            store.remove(OWNER, 3);
+        }
+        try (EItemStore store = EItemStore.open(data)) {
+            assertEquals(1, store.size());
+            assertEquals(item(2), store.get(OWNER, 0));
+            assertNull(store.get(OWNER, 3));
+        }
+    }
+
+    @Test
+    public void recoversAfterTruncatedRecord() throws IOException {
+        Path torn = directory.resolve("torn.dat");
+        EItemStore store = EItemStore.open(data);
+        try {
+            store.put(OWNER, 0, item(1));
+            store.flush();
+            store.put(OWNER, 1, new EItemStack(Material.STONE).setDisplayName("Torn record"));
+            store.put(OWNER, 2, item(2));
+            // Simulates a crash in the middle of writing the second record, after the last checkpoint
+            byte[] bytes = Files.readAllBytes(data);
+            int tear = indexOf(bytes, "Torn record".getBytes(StandardCharsets.UTF_8)) + 4;
+            Arrays.fill(bytes, tear, bytes.length, (byte) 0);
+            Files.write(torn, bytes);
+            Files.copy(index(data), index(torn));
+        } finally {
+            store.close();
+        }
+
+        try (EItemStore recovered = EItemStore.open(torn)) {
+            assertEquals(1, recovered.size());
+            assertEquals(item(1), recovered.get(OWNER, 0));
+            assertNull(recovered.get(OWNER, 1));
+            assertNull(recovered.get(OWNER, 2));
+            recovered.put(OWNER, 1, item(5));
+        }
+        try (EItemStore reopened = EItemStore.open(torn)) {
+            assertArrayEquals(new int[]{0, 1}, reopened.getSlots(OWNER));
+            assertEquals(item(5), reopened.get(OWNER, 1));
+        }
+    }
+
+    @Test
+    public void replaysRecordsAfterStaleIndex() throws IOException {
+        Path stale = directory.resolve("stale.idx");
+        try (EItemStore store = EItemStore.open(data)) {
+            store.put(OWNER, 0, item(1));
+            store.flush();
+            Files.copy(index(data), stale);
+            store.put(OWNER, 0, item(2));
+            store.put(OWNER, 1, item(3));
+            store.remove(OWNER, 1);
+            store.put(OWNER, 4, item(4));
+        }
+        Files.copy(stale, index(data), StandardCopyOption.REPLACE_EXISTING);
+
+        try (EItemStore store = EItemStore.open(data)) {
+            assertArrayEquals(new int[]{0, 4}, store.getSlots(OWNER));
+            assertEquals(item(2), store.get(OWNER, 0));
+            assertEquals(item(4), store.get(OWNER, 4));
+        }
+    }
+
+    @Test
+    public void ignoresIndexOfCompactedFile() throws IOException {
+        Path stale = directory.resolve("stale.idx");
+        try (EItemStore store = EItemStore.open(data)) {
+            for (int i = 0; i < 10; i++) {
+                store.put(OWNER, i % 3, item(i + 1));
+            }
+            store.flush();
+            Files.copy(index(data), stale);
+            store.compact();
+            store.put(OWNER, 5, item(20));
+        }
+        Files.copy(stale, index(data), StandardCopyOption.REPLACE_EXISTING);
+
+        try (EItemStore store = EItemStore.open(data)) {
+            assertArrayEquals(new int[]{0, 1, 2, 5}, store.getSlots(OWNER));
+            assertEquals(item(10), store.get(OWNER, 0));
+            assertEquals(item(20), store.get(OWNER, 5));
+            assertEquals(0, store.getGarbageBytes());
+        }
+    }
+
+    @Test
+    public void compactionDropsSupersededRecords() throws IOException {
+        try (EItemStore store = EItemStore.open(data)) {
+            for (int i = 0; i < 100; i++) {
+                store.put(OWNER, i % 4, item(1 + i % 64));
+            }
+            assertTrue(store.getGarbageBytes() > 0);
+            store.compact();
+            assertEquals(0, store.getGarbageBytes());
+            assertEquals(4, store.size());
+        }
+        try (EItemStore store = EItemStore.open(data)) {
+            assertEquals(4, store.size());
+            assertEquals(item(1 + 99 % 64), store.get(OWNER, 3));
+        }
+    }
+
+    private static int indexOf(byte[] bytes, byte[] pattern) {
+        search:
+        for (int i = 0; i + pattern.length <= bytes.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (bytes[i + j] != pattern[j]) {
+                    continue search;
+                }
+            }
+            return i;
+        }
+        throw new AssertionError("Pattern not found");
+    }
+}
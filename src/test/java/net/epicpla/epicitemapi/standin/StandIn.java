@@ -0,0 +1,122 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi.standin;
+
+import net.epicpla.epicitemapi.EItemResolver;
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.enchantments.Enchantment;
+
+import java.lang.reflect.Proxy;
+import java.util.logging.Logger;
+
+/**
+ * Installs an in-process stand-in of the server, so that the API runs without one.<br>
+ * Only what the API needs is provided: {@link Bukkit#getItemFactory()} and the vanilla enchantments used by the tests and benchmarks.
+ * Every other server method returns null, false or 0.
+ */
+public final class StandIn {
+
+    private static final Logger LOGGER = Logger.getLogger("StandIn");
+    private static final StandInItemFactory ITEM_FACTORY = new StandInItemFactory();
+    private static boolean installed;
+
+    private StandIn() {
+    }
+
+    /**
+     * Installs the stand-in unless it has been installed already
+     */
+    public static synchronized void install() {
+        if (installed) {
+            return;
+        }
+        Server server = (Server) Proxy.newProxyInstance(StandIn.class.getClassLoader(), new Class<?>[]{Server.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getItemFactory":
+                    return ITEM_FACTORY;
+                case "getLogger":
+                    return LOGGER;
+                case "getName":
+                    return "StandIn";
+                case "getVersion":
+                case "getBukkitVersion":
+                    return "1.10.2-R0.1-SNAPSHOT";
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "StandIn";
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        });
+        Bukkit.setServer(server);
+
+        register(0, "PROTECTION_ENVIRONMENTAL", 4);
+        register(16, "DAMAGE_ALL", 5);
+        register(19, "KNOCKBACK", 2);
+        register(20, "FIRE_ASPECT", 2);
+        register(32, "DIG_SPEED", 5);
+        register(34, "DURABILITY", 3);
+        register(70, "MENDING", 1);
+        EItemResolver.init();
+        installed = true;
+    }
+
+    private static void register(int id, String name, int maxLevel) {
+        Enchantment.registerEnchantment(new StandInEnchantment(id, name, maxLevel));
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) {
+            return null;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == char.class) {
+            return '\0';
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == float.class) {
+            return 0F;
+        }
+        if (type == double.class) {
+            return 0D;
+        }
+        if (type == byte.class) {
+            return (byte) 0;
+        }
+        if (type == short.class) {
+            return (short) 0;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi.standin;
+
+import org.bukkit.Color;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+/**
+ * A stand-in of the server's item factory, creating {@link StandInItemMeta} for every material but air
+ */
+final class StandInItemFactory implements ItemFactory {
+
+    private static final StandInItemMeta EMPTY = new StandInItemMeta();
+    private static final Color DEFAULT_LEATHER_COLOR = Color.fromRGB(0xA06540);
+
+    @Override
+    public ItemMeta getItemMeta(Material material) {
+        return material == Material.AIR ? null : new StandInItemMeta();
+    }
+
+    @Override
+    public boolean isApplicable(ItemMeta meta, ItemStack stack) {
+        return stack != null && isApplicable(meta, stack.getType());
+    }
+
+    @Override
+    public boolean isApplicable(ItemMeta meta, Material material) {
+        return material != null && material != Material.AIR && (meta == null || meta instanceof StandInItemMeta);
+    }
+
+    @Override
+    public boolean equals(ItemMeta meta1, ItemMeta meta2) {
+        return (meta1 == null ? EMPTY : meta1).equals(meta2 == null ? EMPTY : meta2);
+    }
+
+    @Override
+    public ItemMeta asMetaFor(ItemMeta meta, ItemStack stack) {
+        return asMetaFor(meta, stack.getType());
+    }
+
+    @Override
+    public ItemMeta asMetaFor(ItemMeta meta, Material material) {
+        if (!isApplicable(meta, material)) {
+            throw new IllegalArgumentException("Meta of " + meta + " is not applicable to " + material);
+        }
+        return meta;
+    }
+
+    @Override
+    public Color getDefaultLeatherColor() {
+        return DEFAULT_LEATHER_COLOR;
+    }
+}
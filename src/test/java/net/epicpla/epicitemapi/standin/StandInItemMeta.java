@@ -0,0 +1,277 @@
+/*
+ * This file is part of Epic-Item-API, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Epic Planet Minecraft Server <https://epicpla.net>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package net.epicpla.epicitemapi.standin;
+
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemFlag;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A stand-in of the server's basic item meta.<br>
+ * Like the server's, getters return copies and {@link #clone()} is deep.
+ */
+final class StandInItemMeta implements ItemMeta {
+
+    private String displayName;
+    private String localizedName;
+    private List<String> lore;
+    private Map<Enchantment, Integer> enchantments;
+    private final Set<ItemFlag> itemFlags = EnumSet.noneOf(ItemFlag.class);
+    private boolean unbreakable;
+
+    private final Spigot spigot = new Spigot() {
+        @Override
+        public void setUnbreakable(boolean unbreakable) {
+            StandInItemMeta.this.unbreakable = unbreakable;
+        }
+
+        @Override
+        public boolean isUnbreakable() {
+            return unbreakable;
+        }
+    };
+
+    @Override
+    public boolean hasDisplayName() {
+        return displayName != null && !displayName.isEmpty();
+    }
+
+    @Override
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    @Override
+    public void setDisplayName(String name) {
+        this.displayName = name;
+    }
+
+    // Not an override on every API version
+    public boolean hasLocalizedName() {
+        return localizedName != null && !localizedName.isEmpty();
+    }
+
+    // Not an override on every API version
+    public String getLocalizedName() {
+        return localizedName;
+    }
+
+    // Not an override on every API version
+    public void setLocalizedName(String name) {
+        this.localizedName = name;
+    }
+
+    @Override
+    public boolean hasLore() {
+        return lore != null && !lore.isEmpty();
+    }
+
+    @Override
+    public List<String> getLore() {
+        return lore == null ? null : new ArrayList<>(lore);
+    }
+
+    @Override
+    public void setLore(List<String> lore) {
+        this.lore = lore == null ? null : new ArrayList<>(lore);
+    }
+
+    @Override
+    public boolean hasEnchants() {
+        return enchantments != null && !enchantments.isEmpty();
+    }
+
+    @Override
+    public boolean hasEnchant(Enchantment ench) {
+        return enchantments != null && enchantments.containsKey(ench);
+    }
+
+    @Override
+    public int getEnchantLevel(Enchantment ench) {
+        Integer level = enchantments == null ? null : enchantments.get(ench);
+        return level == null ? 0 : level;
+    }
+
+    @Override
+    public Map<Enchantment, Integer> getEnchants() {
+        return enchantments == null ? Collections.<Enchantment, Integer>emptyMap() : Collections.unmodifiableMap(new LinkedHashMap<>(enchantments));
+    }
+
+    @Override
+    public boolean addEnchant(Enchantment ench, int level, boolean ignoreLevelRestriction) {
+        if (enchantments == null) {
+            enchantments = new LinkedHashMap<>(4);
+        }
+        if (ignoreLevelRestriction || level >= ench.getStartLevel() && level <= ench.getMaxLevel()) {
+            Integer old = enchantments.put(ench, level);
+            return old == null || old != level;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean removeEnchant(Enchantment ench) {
+        return enchantments != null && enchantments.remove(ench) != null;
+    }
+
+    @Override
+    public boolean hasConflictingEnchant(Enchantment ench) {
+        if (enchantments == null) {
+            return false;
+        }
+        for (Enchantment enchantment : enchantments.keySet()) {
+            if (enchantment.conflictsWith(ench)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void addItemFlags(ItemFlag... itemFlags) {
+        Collections.addAll(this.itemFlags, itemFlags);
+    }
+
+    @Override
+    public void removeItemFlags(ItemFlag... itemFlags) {
+        for (ItemFlag flag : itemFlags) {
+            this.itemFlags.remove(flag);
+        }
+    }
+
+    @Override
+    public Set<ItemFlag> getItemFlags() {
+        return Collections.unmodifiableSet(EnumSet.copyOf(itemFlags));
+    }
+
+    @Override
+    public boolean hasItemFlag(ItemFlag flag) {
+        return itemFlags.contains(flag);
+    }
+
+    // Not an override on every API version
+    public boolean isUnbreakable() {
+        return unbreakable;
+    }
+
+    // Not an override on every API version
+    public void setUnbreakable(boolean unbreakable) {
+        this.unbreakable = unbreakable;
+    }
+
+    @Override
+    public Spigot spigot() {
+        return spigot;
+    }
+
+    @Override
+    public StandInItemMeta clone() {
+        StandInItemMeta clone = new StandInItemMeta();
+        clone.displayName = displayName;
+        clone.localizedName = localizedName;
+        clone.lore = lore == null ? null : new ArrayList<>(lore);
+        clone.enchantments = enchantments == null ? null : new LinkedHashMap<>(enchantments);
+        clone.itemFlags.addAll(itemFlags);
+        clone.unbreakable = unbreakable;
+        return clone;
+    }
+
+    @Override
+    public Map<String, Object> serialize() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("meta-type", "UNSPECIFIC");
+        if (hasDisplayName()) {
+            result.put("display-name", displayName);
+        }
+        if (hasLocalizedName()) {
+            result.put("loc-name", localizedName);
+        }
+        if (hasLore()) {
+            result.put("lore", new ArrayList<>(lore));
+        }
+        if (hasEnchants()) {
+            Map<String, Integer> enchants = new LinkedHashMap<>();
+            for (Map.Entry<Enchantment, Integer> entry : enchantments.entrySet()) {
+                enchants.put(entry.getKey().getName(), entry.getValue());
+            }
+            result.put("enchants", enchants);
+        }
+        if (!itemFlags.isEmpty()) {
+            List<String> flags = new ArrayList<>(itemFlags.size());
+            for (ItemFlag flag : itemFlags) {
+                flags.add(flag.name());
+            }
+            result.put("ItemFlags", flags);
+        }
+        if (unbreakable) {
+            result.put("Unbreakable", true);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof StandInItemMeta)) {
+            return false;
+        }
+        StandInItemMeta meta = (StandInItemMeta) obj;
+        return (hasDisplayName() ? displayName.equals(meta.displayName) : !meta.hasDisplayName())
+                && (hasLocalizedName() ? localizedName.equals(meta.localizedName) : !meta.hasLocalizedName())
+                && (hasLore() ? lore.equals(meta.lore) : !meta.hasLore())
+                && (hasEnchants() ? enchantments.equals(meta.enchantments) : !meta.hasEnchants())
+                && itemFlags.equals(meta.itemFlags)
+                && unbreakable == meta.unbreakable;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 3;
+        hash = 61 * hash + (hasDisplayName() ? displayName.hashCode() : 0);
+        hash = 61 * hash + (hasLocalizedName() ? localizedName.hashCode() : 0);
+        hash = 61 * hash + (hasLore() ? lore.hashCode() : 0);
+        hash = 61 * hash + (hasEnchants() ? enchantments.hashCode() : 0);
+        hash = 61 * hash + itemFlags.hashCode();
+        hash = 61 * hash + (unbreakable ? 1231 : 1237);
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "StandInItemMeta" + serialize();
+    }
+}